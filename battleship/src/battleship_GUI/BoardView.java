@@ -0,0 +1,182 @@
+/*
+ * Name: BoardView.java
+ * Description: Paint the whole map in one component. A coordinate not shot yet is drawn
+ * as a raised button; a shot one shows the color of its ship, or blue for a miss. Whether
+ * a coordinate was shot is read from the board itself, so the view keeps no state per cell.
+ *
+ * A click is mapped to its coordinate arithmetically and passed on to the action listeners
+ * with the command "x<TAB>y", as the buttons of the cells did. After a shot, reveal() only
+ * repaints the rectangle of that coordinate, and painting only visits the coordinates in
+ * the clip, so the cost of the window does not grow with the size of the board.
+ */
+
+package battleship_GUI;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+
+import battleship_data.Board;
+import battleship_data.Ship;
+
+public class BoardView extends JComponent {
+
+	private static final long serialVersionUID = 1L;
+
+	static final int MAX_GAP = 10; // Space between coordinates, as in the old grid of cells
+	static final Color MISS_COLOR = Color.BLUE;
+
+	private final Board BOARD;
+
+	public BoardView(Board board) {
+		this.BOARD = board;
+		setPreferredSize(new Dimension(760, 500));
+		setOpaque(false);
+
+		addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseReleased(MouseEvent e) {
+				if (contains(e.getPoint()) && isEnabled()) {
+					click(e.getX(), e.getY());
+				}
+			}
+		});
+	}
+
+	public void addActionListener(ActionListener listener) {
+		listenerList.add(ActionListener.class, listener);
+	}
+
+	public void removeActionListener(ActionListener listener) {
+		listenerList.remove(ActionListener.class, listener);
+	}
+
+	// Repaint one coordinate, e.g. after it was shot
+	public void reveal(int coordX, int coordY) {
+		repaint(cellBounds(coordX, coordY));
+	}
+
+	// Find the coordinate under a point; clicks on the gaps and on coordinates already shot do nothing
+	void click(int pixelX, int pixelY) {
+		int coordX = column(pixelX);
+		int coordY = row(pixelY);
+		if (coordX < 0 || coordY < 0 || !cellBounds(coordX, coordY).contains(pixelX, pixelY)
+				|| BOARD.isShot(coordX, coordY)) {
+			return;
+		}
+
+		ActionEvent event = new ActionEvent(this, ActionEvent.ACTION_PERFORMED,
+				Integer.toString(coordX) + "\t" + Integer.toString(coordY));
+		for (ActionListener listener : listenerList.getListeners(ActionListener.class)) {
+			listener.actionPerformed(event);
+		}
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+
+		// Only the coordinates that intersect the clip
+		int fromX = Math.max(0, column(clip.x, false));
+		int toX = Math.min(BOARD.getBoardSizeX() - 1, column(clip.x + clip.width, false));
+		int fromY = Math.max(0, row(clip.y, false));
+		int toY = Math.min(BOARD.getBoardSizeY() - 1, row(clip.y + clip.height, false));
+
+		Color buttonColor = UIManager.getColor("Button.background");
+		if (buttonColor == null) {
+			buttonColor = Color.LIGHT_GRAY;
+		}
+
+		for (int coordY = fromY; coordY <= toY; coordY++) {
+			for (int coordX = fromX; coordX <= toX; coordX++) {
+				Rectangle r = cellBounds(coordX, coordY);
+				if (r.width <= 0 || r.height <= 0) {
+					continue;
+				}
+				if (BOARD.isShot(coordX, coordY)) {
+					Ship ship = BOARD.getShip(coordX, coordY);
+					g.setColor(ship == null ? MISS_COLOR : ship.getColor());
+					g.fillRect(r.x, r.y, r.width, r.height);
+				} else {
+					g.setColor(buttonColor);
+					g.fill3DRect(r.x, r.y, r.width, r.height, true);
+				}
+			}
+		}
+	}
+
+	// The pixels of a coordinate. The component is split evenly between the coordinates,
+	// and each gives up a gap on its right and bottom, except the last column and row.
+	Rectangle cellBounds(int coordX, int coordY) {
+		int left = edge(coordX, getWidth(), BOARD.getBoardSizeX());
+		int right = edge(coordX + 1, getWidth(), BOARD.getBoardSizeX());
+		int top = edge(coordY, getHeight(), BOARD.getBoardSizeY());
+		int bottom = edge(coordY + 1, getHeight(), BOARD.getBoardSizeY());
+		if (coordX < BOARD.getBoardSizeX() - 1) {
+			right -= gap(getWidth(), BOARD.getBoardSizeX());
+		}
+		if (coordY < BOARD.getBoardSizeY() - 1) {
+			bottom -= gap(getHeight(), BOARD.getBoardSizeY());
+		}
+		return new Rectangle(left, top, right - left, bottom - top);
+	}
+
+	// Left (or top) pixel of coordinate number index, of count coordinates over size pixels
+	private static int edge(int index, int size, int count) {
+		return (int) ((long) index * size / count);
+	}
+
+	// The gap shrinks on big boards, so that a coordinate is never mostly gap
+	private static int gap(int size, int count) {
+		return Math.min(MAX_GAP, size / count / 5);
+	}
+
+	int column(int pixelX) {
+		return column(pixelX, true);
+	}
+
+	int row(int pixelY) {
+		return row(pixelY, true);
+	}
+
+	// Coordinate whose share of the component holds the pixel; -1 outside if strict
+	private int column(int pixelX, boolean strict) {
+		return indexAt(pixelX, getWidth(), BOARD.getBoardSizeX(), strict);
+	}
+
+	private int row(int pixelY, boolean strict) {
+		return indexAt(pixelY, getHeight(), BOARD.getBoardSizeY(), strict);
+	}
+
+	private static int indexAt(int pixel, int size, int count, boolean strict) {
+		if (size <= 0) {
+			return -1;
+		}
+		if (pixel < 0 || pixel >= size) {
+			if (strict) {
+				return -1;
+			}
+			pixel = Math.max(0, Math.min(size - 1, pixel));
+		}
+		// The largest index whose edge is at or before the pixel
+		int index = (int) ((long) pixel * count / size);
+		while (index > 0 && edge(index, size, count) > pixel) {
+			index--;
+		}
+		while (index < count - 1 && edge(index + 1, size, count) <= pixel) {
+			index++;
+		}
+		return index;
+	}
+}
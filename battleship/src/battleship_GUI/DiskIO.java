@@ -0,0 +1,32 @@
+/*
+ * Name: DiskIO.java
+ * Description: The thread that does the disk work of the windows: reading layout files
+ * and the rules, and writing high scores. Tasks run one at a time in the order they were
+ * given, so high score updates never overtake each other. SwingWorkers can be run here too,
+ * and report back on the Event Dispatch Thread in done().
+ */
+
+package battleship_GUI;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+final class DiskIO {
+
+	static final long IDLE_SECONDS = 5; // The thread ends when idle this long, and starts again when needed
+
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(), task -> new Thread(task, "battleship-disk-io"));
+
+	static {
+		EXECUTOR.allowCoreThreadTimeOut(true);
+	}
+
+	private DiskIO() {
+	}
+
+	static void execute(Runnable task) {
+		EXECUTOR.execute(task);
+	}
+}
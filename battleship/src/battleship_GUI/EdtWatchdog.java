@@ -0,0 +1,239 @@
+/*
+ * Name: EdtWatchdog.java
+ * Description: Watch the Event Dispatch Thread for freezes.
+ * The watchdog is pushed onto the system event queue, so it sees the EDT take every event
+ * and come back for the next one. The time in between, while the EDT is busy, goes into a
+ * histogram of dispatch times. Waiting for events is not busy, so a modal dialog waiting
+ * for the user is not a freeze, while work done before or after the dialog is.
+ *
+ * A thread of its own checks a few times per threshold whether the EDT has been busy longer
+ * than the threshold. If so, it writes a stall report to a rolling log: the event being
+ * dispatched, the action command the windows were handling (see action()), how long the EDT
+ * has been blocked, and the stack of the EDT at that moment, which shows what it waits for.
+ * When the stall ends, its total length is logged as well. Only stalls cost any allocation.
+ *
+ * The threshold is read from the system property battleship.edt.stallMillis (200 by
+ * default; 0 turns the watchdog off). Reports go to edt-stalls.log in the working directory,
+ * which is rolled over to edt-stalls.log.1 and .2 when it grows beyond 1 MB.
+ */
+
+package battleship_GUI;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class EdtWatchdog extends EventQueue {
+
+	static final long DEFAULT_STALL_MILLIS = 200; // Users notice a window not answering about here
+	static final long MAX_LOG_BYTES = 1 << 20; // The log is rolled over beyond this
+	static final int OLD_LOGS = 2; // Rolled over logs kept, .1 the newest
+	static final int BUCKETS = 32; // Dispatch times by power of two microseconds
+	static final int MAX_DEPTH = 64; // Nested dispatches (modal dialogs in dialogs) tracked
+
+	private static EdtWatchdog installed;
+
+	private final long STALL_NANOS;
+	private final Path LOG;
+	private final AtomicLongArray HISTOGRAM = new AtomicLongArray(BUCKETS); // Written by the EDT only
+	private final ConcurrentLinkedQueue<String> ENDED = new ConcurrentLinkedQueue<String>(); // Stalls over
+	private final Thread CHECKER;
+
+	// EDT side; read by the checker
+	private volatile Thread edt;
+	private volatile long busySince; // When the EDT took its event; 0 while it waits for one
+	private final AWTEvent[] DISPATCHING = new AWTEvent[MAX_DEPTH]; // Events being dispatched, outermost first
+	private volatile int depth;
+	private volatile String action; // Action command being handled, if the windows told
+	private volatile int actionDepth;
+
+	// Checker side
+	private long reportedBusySince; // The busy period already reported
+	private long stalls;
+
+	EdtWatchdog(long stallMillis, Path log) {
+		this.STALL_NANOS = TimeUnit.MILLISECONDS.toNanos(stallMillis);
+		this.LOG = log;
+		this.CHECKER = new Thread(this::check, "edt-watchdog");
+		this.CHECKER.setDaemon(true);
+	}
+
+	// Watch the EDT from now on, unless turned off by the system property. Call once at start.
+	public static synchronized void install() {
+		long stallMillis = Long.getLong("battleship.edt.stallMillis", DEFAULT_STALL_MILLIS);
+		if (installed != null || stallMillis <= 0) {
+			return;
+		}
+		EdtWatchdog watchdog = new EdtWatchdog(stallMillis, Paths.get("edt-stalls.log"));
+		Toolkit.getDefaultToolkit().getSystemEventQueue().push(watchdog);
+		watchdog.CHECKER.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(watchdog::close, "edt-watchdog-close"));
+		installed = watchdog;
+	}
+
+	// Note the action command a window is handling, so that a stall report can name it.
+	// It is forgotten when the event that caused it has been dispatched.
+	static void action(String command) {
+		EdtWatchdog watchdog = installed;
+		if (watchdog != null) {
+			watchdog.actionDepth = watchdog.depth;
+			watchdog.action = command;
+		}
+	}
+
+	@Override
+	public AWTEvent getNextEvent() throws InterruptedException {
+		long since = busySince;
+		if (since != 0) {
+			busySince = 0;
+			record(System.nanoTime() - since);
+		}
+		AWTEvent event = super.getNextEvent();
+		busySince = System.nanoTime();
+		return event;
+	}
+
+	@Override
+	protected void dispatchEvent(AWTEvent event) {
+		int level = depth;
+		if (level < MAX_DEPTH) {
+			DISPATCHING[level] = event;
+		}
+		edt = Thread.currentThread();
+		depth = level + 1;
+		try {
+			super.dispatchEvent(event);
+		} finally {
+			if (level < MAX_DEPTH) {
+				DISPATCHING[level] = null;
+			}
+			depth = level;
+			if (actionDepth > level) {
+				action = null;
+			}
+		}
+	}
+
+	// Count a busy period of the EDT, and log its end if it was a stall
+	private void record(long nanos) {
+		long micros = nanos / 1000;
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		HISTOGRAM.lazySet(bucket, HISTOGRAM.get(bucket) + 1);
+		if (nanos > STALL_NANOS) {
+			ENDED.add(LocalDateTime.now() + " EDT stall over after " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms");
+		}
+	}
+
+	// The checker thread: look at the EDT a few times per threshold
+	private void check() {
+		long interval = Math.max(1, TimeUnit.NANOSECONDS.toMillis(STALL_NANOS) / 4);
+		while (true) {
+			try {
+				Thread.sleep(interval);
+			} catch (InterruptedException e) {
+				return;
+			}
+			String ended;
+			while ((ended = ENDED.poll()) != null) {
+				write(ended + System.lineSeparator());
+			}
+			long since = busySince;
+			if (since != 0 && since != reportedBusySince && System.nanoTime() - since > STALL_NANOS) {
+				reportedBusySince = since;
+				stalls++;
+				write(report(since));
+			}
+		}
+	}
+
+	private String report(long since) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(LocalDateTime.now()).append(" EDT blocked for ")
+				.append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since)).append(" ms").append(System.lineSeparator());
+		String command = action;
+		if (command != null) {
+			sb.append("  Action: ").append(command.replace("\t", "\\t")).append(System.lineSeparator());
+		}
+		int level = Math.min(depth, MAX_DEPTH);
+		AWTEvent event = level > 0 ? DISPATCHING[level - 1] : null;
+		if (event != null) {
+			sb.append("  Event: ").append(event.getClass().getName()).append(" from ")
+					.append(event.getSource() == null ? "null" : event.getSource().getClass().getName())
+					.append(System.lineSeparator());
+		}
+		Thread thread = edt;
+		if (thread != null) {
+			for (StackTraceElement frame : thread.getStackTrace()) {
+				sb.append("    at ").append(frame).append(System.lineSeparator());
+			}
+		}
+		return sb.toString();
+	}
+
+	// Dispatch times so far: count, and the bucket bounds below which half and 99% of them fall
+	String summary() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += HISTOGRAM.get(i);
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(LocalDateTime.now()).append(" EDT dispatches: ").append(total).append(", stalls: ").append(stalls);
+		long seen = 0;
+		boolean median = false;
+		for (int i = 0; i < BUCKETS && total > 0; i++) {
+			seen += HISTOGRAM.get(i);
+			if (!median && seen * 2 >= total) {
+				sb.append(", median < ").append(1L << i).append(" us");
+				median = true;
+			}
+			if (seen * 100 >= total * 99) {
+				sb.append(", 99% < ").append(1L << i).append(" us");
+				break;
+			}
+		}
+		sb.append(System.lineSeparator()).append("  Histogram (us, count):");
+		for (int i = 0; i < BUCKETS; i++) {
+			if (HISTOGRAM.get(i) > 0) {
+				sb.append(" <").append(1L << i).append(':').append(HISTOGRAM.get(i));
+			}
+		}
+		return sb.append(System.lineSeparator()).toString();
+	}
+
+	// Log the histogram when the program exits
+	void close() {
+		CHECKER.interrupt();
+		write(summary());
+	}
+
+	// Append to the log, rolling it over when it is full; only the checker and close() write
+	private synchronized void write(String text) {
+		try {
+			if (Files.exists(LOG) && Files.size(LOG) > MAX_LOG_BYTES) {
+				for (int i = OLD_LOGS; i > 1; i--) {
+					Path older = LOG.resolveSibling(LOG.getFileName() + "." + (i - 1));
+					if (Files.exists(older)) {
+						Files.move(older, LOG.resolveSibling(LOG.getFileName() + "." + i),
+								StandardCopyOption.REPLACE_EXISTING);
+					}
+				}
+				Files.move(LOG, LOG.resolveSibling(LOG.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+			}
+			Files.write(LOG, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+					StandardOpenOption.APPEND);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
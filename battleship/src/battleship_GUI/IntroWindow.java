@@ -1,20 +1,25 @@
 /*
  * Name: IntroWindow.java
  * Description: Opens a window for starting the game.
+ * Files are read on the disk thread (see DiskIO): a chosen layout file is checked as soon
+ * as it is picked, and the game starts from the layout read then, unless the file changed.
+ * A game left unfinished in the autosave is offered to be resumed when the window opens.
  */
 
 package battleship_GUI;
 
 import java.awt.BorderLayout;
 import java.awt.CardLayout;
+import java.awt.Cursor;
 import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.util.Scanner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JButton;
@@ -29,9 +34,15 @@ import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.SpinnerListModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import battleship_data.Autosave;
 import battleship_data.Board;
+import battleship_data.GameSnapshot;
+import battleship_data.Layout;
+import battleship_data.LayoutCache;
+import battleship_data.Leaderboard;
 import battleship_data.ScoreBoard;
 
 public class IntroWindow extends JFrame implements ActionListener {
@@ -40,9 +51,12 @@ public class IntroWindow extends JFrame implements ActionListener {
 
 	// Elements that need to be accessed by ActionListener / changed dynamically
 	private int playerBonus = 0; // Add to player 2 if the player hits a ship; either 0 or 5
+	private boolean computerPlayer = false; // Whether the computer plays as player 2
 	private File chosenFile; // The path to file the user has chosen to start the game
 	private CardLayout optionsCards;
 	private JTextField chosenFileText;
+	private JLabel fileStatus; // Result of checking the chosen file
+	private JButton startGameWithFile;
 	private JPanel startGamePanel;
 	private JSpinner rowSpinner; // 5 to 10; number of rows if the map is randomly generated
 	private JSpinner colSpinner; // 5 to 10; number of columns if the map is randomly generated
@@ -56,6 +70,7 @@ public class IntroWindow extends JFrame implements ActionListener {
 		setResizable(false);
 
 		chosenFile = null;
+		Leaderboard.getDefault(); // Start reading the high scores in the background
 
 		// Top panel contains the game title
 		JLabel gameTitle = new JLabel("Battleship", SwingConstants.CENTER);
@@ -97,12 +112,44 @@ public class IntroWindow extends JFrame implements ActionListener {
 
 		pack();
 		setVisible(true);
+		offerResume();
+	}
+
+	// Look for an unfinished game in the autosave on the disk thread, and ask whether to resume it
+	void offerResume() {
+		DiskIO.execute(new SwingWorker<GameSnapshot, Void>() {
+			@Override
+			protected GameSnapshot doInBackground() throws Exception {
+				return Autosave.getDefault().load();
+			}
+
+			@Override
+			protected void done() {
+				try {
+					GameSnapshot snapshot = get();
+					if (snapshot == null || !IntroWindow.this.isVisible()) {
+						return; // Nothing saved, or a game was started meanwhile
+					}
+					int choice = JOptionPane.showOptionDialog(IntroWindow.this,
+							"A game was not finished. Do you want to resume it?", "Resume Game",
+							JOptionPane.YES_NO_OPTION, JOptionPane.QUESTION_MESSAGE, null, null, null);
+					if (choice == JOptionPane.YES_OPTION) {
+						new MainWindow(snapshot);
+						IntroWindow.this.setVisible(false);
+					} else if (choice == JOptionPane.NO_OPTION) {
+						DiskIO.execute(() -> Autosave.getDefault().clear());
+					}
+				} catch (ExecutionException | InterruptedException | IllegalArgumentException ee) {
+					ee.printStackTrace(); // Start a new game instead
+				}
+			}
+		});
 	}
 
 	JPanel makeOptionsPanel() {
 
 		JPanel optionsPanel = new JPanel();
-		optionsPanel.setLayout(new GridLayout(2, 1));
+		optionsPanel.setLayout(new GridLayout(3, 1));
 
 		// Choose Layout Source Panel
 		JPanel layoutPanel = new JPanel();
@@ -151,8 +198,32 @@ public class IntroWindow extends JFrame implements ActionListener {
 		scoringPanel.add(evenOption);
 		scoringPanel.add(oddOption);
 
+		// Choose Player 2 Panel
+		JPanel opponentPanel = new JPanel();
+		opponentPanel.setLayout(new GridLayout(4, 1));
+
+		JLabel opponent = new JLabel("  Choose Player 2:");
+		opponent.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 16));
+
+		JRadioButton humanOption = new JRadioButton("Player 2: Human", true);
+		JRadioButton computerOption = new JRadioButton("Player 2: Computer");
+		humanOption.addActionListener(this);
+		humanOption.setActionCommand("human-opponent");
+		computerOption.addActionListener(this);
+		computerOption.setActionCommand("computer-opponent");
+
+		// Limit options to 1
+		ButtonGroup opponentOptions = new ButtonGroup();
+		opponentOptions.add(humanOption);
+		opponentOptions.add(computerOption);
+
+		opponentPanel.add(opponent);
+		opponentPanel.add(humanOption);
+		opponentPanel.add(computerOption);
+
 		optionsPanel.add(layoutPanel);
 		optionsPanel.add(scoringPanel);
+		optionsPanel.add(opponentPanel);
 
 		return optionsPanel;
 	}
@@ -171,7 +242,8 @@ public class IntroWindow extends JFrame implements ActionListener {
 		chosenFileText.setEditable(false);
 
 		JButton chooseFileButton = new JButton("Choose File");
-		JButton startGameWithFile = new JButton("Start Game");
+		startGameWithFile = new JButton("Start Game");
+		fileStatus = new JLabel(" ", SwingConstants.CENTER);
 
 		chooseFileButton.addActionListener(this);
 		chooseFileButton.setActionCommand("file");
@@ -180,7 +252,11 @@ public class IntroWindow extends JFrame implements ActionListener {
 
 		fileTab.add(chosenFileText, BorderLayout.CENTER);
 		fileTab.add(chooseFileButton, BorderLayout.EAST);
-		fileTab.add(startGameWithFile, BorderLayout.SOUTH);
+		JPanel startFilePanel = new JPanel();
+		startFilePanel.setLayout(new GridLayout(2, 1));
+		startFilePanel.add(fileStatus);
+		startFilePanel.add(startGameWithFile);
+		fileTab.add(startFilePanel, BorderLayout.SOUTH);
 
 		// Start game with random map chosen
 		JPanel numberTab = new JPanel();
@@ -234,13 +310,80 @@ public class IntroWindow extends JFrame implements ActionListener {
 		}
 	}
 
+	// Parse the chosen file in the background, so that problems show before the game is started
+	void checkFile(File file) {
+		fileStatus.setText("Checking layout...");
+		DiskIO.execute(new SwingWorker<Layout, Void>() {
+			@Override
+			protected Layout doInBackground() throws Exception {
+				return LayoutCache.getDefault().get(file);
+			}
+
+			@Override
+			protected void done() {
+				if (file != chosenFile) {
+					return; // Another file was chosen meanwhile
+				}
+				try {
+					Layout layout = get();
+					fileStatus.setText("Valid layout: " + layout.getBoardSizeX() + "x" + layout.getBoardSizeY()
+							+ " board, " + layout.getNumberOfShips() + " ships.");
+				} catch (ExecutionException | InterruptedException ee) {
+					boolean invalid = ee.getCause() instanceof IllegalArgumentException;
+					fileStatus.setText(invalid ? "Not a valid layout." : "Not a valid layout file.");
+				}
+			}
+		});
+	}
+
+	// Build the board from the chosen file in the background, then open the game window
+	void startWithFile(File file) {
+		int bonus = playerBonus;
+		boolean computer = computerPlayer;
+		startGameWithFile.setEnabled(false);
+		setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+		fileStatus.setText("Loading layout...");
+
+		DiskIO.execute(new SwingWorker<Board, Void>() {
+			@Override
+			protected Board doInBackground() throws Exception {
+				return new Board(LayoutCache.getDefault().get(file));
+			}
+
+			@Override
+			protected void done() {
+				setCursor(Cursor.getDefaultCursor());
+				startGameWithFile.setEnabled(true);
+				fileStatus.setText(" ");
+				try {
+					new MainWindow(get(), bonus, computer);
+					IntroWindow.this.setVisible(false);
+				} catch (ExecutionException ee) {
+					ee.getCause().printStackTrace();
+					if (ee.getCause() instanceof IllegalArgumentException) {
+						JOptionPane.showMessageDialog(IntroWindow.this, "Not a valid layout.\n" + ee.getCause().getMessage());
+					} else {
+						JOptionPane.showMessageDialog(IntroWindow.this, "Not a valid layout file.");
+					}
+				} catch (InterruptedException ee) {
+					ee.printStackTrace();
+				}
+			}
+		});
+	}
+
 	@Override
 	public void actionPerformed(ActionEvent e) {
 
+		EdtWatchdog.action(e.getActionCommand()); // Named in a stall report
+
 		switch(e.getActionCommand()) {
 		case "file": { // Choose file button
 			getFile();
-			if (chosenFile != null) {chosenFileText.setText(chosenFile.toString());}
+			if (chosenFile != null) {
+				chosenFileText.setText(chosenFile.toString());
+				checkFile(chosenFile);
+			}
 			revalidate();
 			break;
 		} 
@@ -248,26 +391,14 @@ public class IntroWindow extends JFrame implements ActionListener {
 			if (chosenFile == null) {
 				JOptionPane.showMessageDialog(this, "Please select a file.");
 			} else {
-				try {
-					new Board(chosenFile);
-					new MainWindow(chosenFile, playerBonus);
-					this.setVisible(false);
-				} catch (Exception ee) {
-					ee.printStackTrace();
-					if (ee.getClass().getName() == "java.lang.IllegalArgumentException") {
-						JOptionPane.showMessageDialog(this, "Not a valid layout.\n" + ee.getMessage());
-					} else {
-						JOptionPane.showMessageDialog(this, "Not a valid layout file.");
-					}
-
-				}	
+				startWithFile(chosenFile);
 			}
 			break;
 		}
 		case "start-random": { // Start game with random layout button
 			int rows = Integer.parseInt((String) rowSpinner.getValue());
 			int columns = Integer.parseInt((String) colSpinner.getValue());
-			new MainWindow(rows, columns, playerBonus);
+			new MainWindow(rows, columns, playerBonus, computerPlayer);
 			this.setVisible(false);
 			break;
 		}
@@ -287,38 +418,45 @@ public class IntroWindow extends JFrame implements ActionListener {
 			playerBonus = 5;
 			break;
 		}
+		case "human-opponent": { // Two players take turns
+			computerPlayer = false;
+			break;
+		}
+		case "computer-opponent": { // The computer plays as player 2
+			computerPlayer = true;
+			break;
+		}
 		case "rules": {
-			try (Scanner sc = new Scanner(new FileReader("rules.txt"));) {
-				String rules = "";
-				while (sc.hasNextLine()) {
-					rules += sc.nextLine() + "\n";
+			// Read rules.txt on the disk thread and show it when it is read
+			DiskIO.execute(new SwingWorker<String, Void>() {
+				@Override
+				protected String doInBackground() throws Exception {
+					return String.join("\n", Files.readAllLines(Paths.get("rules.txt"), StandardCharsets.UTF_8)) + "\n";
 				}
-				JOptionPane.showMessageDialog(this, rules, "RULES", JOptionPane.INFORMATION_MESSAGE);
-			} catch (Exception ee) {
-				ee.printStackTrace();
-			}
+
+				@Override
+				protected void done() {
+					try {
+						JOptionPane.showMessageDialog(IntroWindow.this, get(), "RULES", JOptionPane.INFORMATION_MESSAGE);
+					} catch (Exception ee) {
+						ee.printStackTrace();
+					}
+				}
+			});
 			break;
 		}
 		case "highscore": {
-			try(BufferedReader br = new BufferedReader(new FileReader("highscores.txt"))) {
-				String highscores = "";
-				for (int i = 0; i < 11; i++) {
-					highscores += br.readLine() + "\n";
-				}
-				JTextArea ta = new JTextArea(highscores);
-				ta.setBackground(null);
-				ta.setEditable(false);
-				JOptionPane.showMessageDialog(this, ta, "HIGHSCORE", JOptionPane.PLAIN_MESSAGE);
-			} catch (Exception ee) {
-				ee.printStackTrace();
-			}
+			JTextArea ta = new JTextArea(Leaderboard.getDefault().getText());
+			ta.setBackground(null);
+			ta.setEditable(false);
+			JOptionPane.showMessageDialog(this, ta, "HIGHSCORE", JOptionPane.PLAIN_MESSAGE);
 			break;
 		}
 		case "reset-highscore": {
 			int choice = JOptionPane.showOptionDialog(this,"Are you sure? This action is irreversible.", 
 					"Reset Highscore", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE, null, null, null);
 			if (choice == JOptionPane.YES_OPTION) {
-				ScoreBoard.resetHighscores();
+				DiskIO.execute(ScoreBoard::resetHighscores);
 			}
 			break;
 		}
@@ -1,9 +1,10 @@
 /*
  * Name: MainWindow.java
- * Description: Generate a new game with new board and score board.
- * Each button in the map is listened by the cell that contains it in order to reveal the colors,
- * as well as by the main window to record their coordinates, so that they can be passed
- * to board and score board.
+ * Description: Generate a new game with new board and render its game engine.
+ * The map is a single BoardView, which paints the shots and revealed ships and passes every
+ * click to the window as an "x<TAB>y" action command, so that the coordinates can be passed
+ * to the game engine, which keeps the board, the score board and the player turn.
+ * After every move the game is autosaved, so that it can be resumed if the program stops.
  */
 
 package battleship_GUI;
@@ -13,10 +14,10 @@ import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -24,9 +25,18 @@ import javax.swing.JPanel;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
 
+import battleship_ai.ProbabilityShooter;
+import battleship_ai.ShootingStrategy;
+import battleship_data.Autosave;
 import battleship_data.Board;
+import battleship_data.GameEngine;
+import battleship_data.GameSnapshot;
+import battleship_data.Leaderboard;
+import battleship_data.MoveJournal;
 import battleship_data.ScoreBoard;
 import battleship_data.Ship;
+import battleship_data.ShipType;
+import battleship_data.ShotResult;
 
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -36,14 +46,14 @@ public class MainWindow extends JFrame implements ActionListener {
 
 	private static final long serialVersionUID = 1L;
 
+	static final int COMPUTER_OPTION = 1; // Options of a snapshot: player 2 is the computer
+
 	// Elements that need to be accessed by ActionListener / changed dynamically
-	private final int PLAYER_BONUS; // Add to player 2 if the player hits a ship; either 0 or 5
 	private final Board CURRENT_BOARD;
-	private final ScoreBoard CURRENT_SCOREBOARD = new ScoreBoard();
+	private final GameEngine ENGINE;
+	private final ShootingStrategy COMPUTER; // Plays player 2; null if player 2 is human
+	private BoardView boardView; // Paints the map and turns clicks into coordinates
 
-	private boolean bGameOver;
-	private int noOfShipsLeft;
-	private int playerNo; // Either 1 or 2; alternates each round
 	private JLabel p1Score;
 	private JLabel turn;
 	private JLabel p2Score;
@@ -52,30 +62,87 @@ public class MainWindow extends JFrame implements ActionListener {
 
 	// Generate a game with file
 	public MainWindow(File file, int playerBonus) throws FileNotFoundException, IllegalArgumentException {
-		super();
-		CURRENT_BOARD = new Board(file);
-		this.PLAYER_BONUS = playerBonus;
-		MakeWindow();		
+		this(new Board(file), playerBonus, false);
+	}
+
+	// Generate a game with file, optionally against the computer
+	public MainWindow(File file, int playerBonus, boolean computerPlayer)
+			throws FileNotFoundException, IllegalArgumentException {
+		this(new Board(file), playerBonus, computerPlayer);
 	}
 
 	// Generate a game randomly with a certain board size
 	public MainWindow(int sizeX, int sizeY, int playerBonus) {
+		this(new Board(sizeX, sizeY), playerBonus, false);
+	}
+
+	// Generate a game randomly with a certain board size, optionally against the computer
+	public MainWindow(int sizeX, int sizeY, int playerBonus, boolean computerPlayer) {
+		this(new Board(sizeX, sizeY), playerBonus, computerPlayer);
+	}
+
+	MainWindow(Board board, int playerBonus, boolean computerPlayer) {
+		super();
+		CURRENT_BOARD = board;
+		ENGINE = new GameEngine(CURRENT_BOARD, playerBonus);
+		ENGINE.setJournal(MoveJournal.getDefault(), MoveJournal.newGameId());
+		if (computerPlayer) {
+			COMPUTER = new ProbabilityShooter();
+			COMPUTER.reset(board.getBoardSizeX(), board.getBoardSizeY(), new Random());
+		} else {
+			COMPUTER = null;
+		}
+		MakeWindow();
+	}
+
+	// Resume a saved game where it stopped
+	MainWindow(GameSnapshot snapshot) {
 		super();
-		CURRENT_BOARD = new Board(sizeX, sizeY);
-		this.PLAYER_BONUS = playerBonus;
+		ENGINE = snapshot.restore();
+		CURRENT_BOARD = ENGINE.getBoard();
+		if (snapshot.getGameId() != 0) {
+			ENGINE.continueJournal(MoveJournal.getDefault(), snapshot.getGameId());
+		} else {
+			ENGINE.setJournal(MoveJournal.getDefault(), MoveJournal.newGameId());
+		}
+		if ((snapshot.getOptions() & COMPUTER_OPTION) != 0) {
+			COMPUTER = new ProbabilityShooter();
+			COMPUTER.reset(CURRENT_BOARD.getBoardSizeX(), CURRENT_BOARD.getBoardSizeY(), new Random());
+			showShotsToComputer();
+		} else {
+			COMPUTER = null;
+		}
 		MakeWindow();
 	}
 
+	// Let the computer see the shots of a restored game. Their order is not saved, so every
+	// shot is shown as a miss or a hit first, then each sunk ship is sunk on its origin.
+	void showShotsToComputer() {
+		int sizeX = CURRENT_BOARD.getBoardSizeX();
+		long[] shotCells = CURRENT_BOARD.getShotCells();
+		for (int pass = 0; pass < 2; pass++) {
+			for (long cell : shotCells) {
+				int coordX = (int) (cell % sizeX);
+				int coordY = (int) (cell / sizeX);
+				Ship ship = CURRENT_BOARD.getShip(coordX, coordY);
+				boolean sinks = ship != null && ship.isDown() == 2 && ship.getOriginX() == coordX
+						&& ship.getOriginY() == coordY;
+				if (pass == 0 && !sinks) {
+					int outcome = ship == null ? ShotResult.MISS : ShotResult.HIT;
+					COMPUTER.observe(coordX, coordY, ShotResult.of(outcome, null, 1, 0));
+				} else if (pass == 1 && sinks) {
+					COMPUTER.observe(coordX, coordY, ShotResult.of(ShotResult.SUNK, ship.getShipType(), 1, 0));
+				}
+			}
+		}
+	}
+
 	void MakeWindow() {
 
 		getContentPane().setLayout(new BoxLayout(getContentPane(), BoxLayout.PAGE_AXIS));
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		setTitle("BATTLESHIP");
 
-		bGameOver = false;
-		playerNo = 1;
-		noOfShipsLeft = CURRENT_BOARD.getNumberOfShips();
-
 		setMinimumSize(new Dimension(800, 650));
 		setPreferredSize(getMinimumSize());
 
@@ -88,12 +155,14 @@ public class MainWindow extends JFrame implements ActionListener {
 		JButton highScoreButton = new JButton("High Scores");
 		JLabel p1ScoreLabel = new JLabel("Player 1 Score:", SwingConstants.CENTER);
 		JLabel turnLabel = new JLabel("Turn:", SwingConstants.CENTER);
-		JLabel p2ScoreLabel = new JLabel("Player 2 Score:", SwingConstants.CENTER);
+		JLabel p2ScoreLabel = new JLabel(COMPUTER == null ? "Player 2 Score:" : "Computer Score:",
+				SwingConstants.CENTER);
 		JButton quitButton = new JButton("Quit Game");
-		shipLeftLabel = new JLabel("Number of ship left: " + Integer.toString(noOfShipsLeft), SwingConstants.CENTER);
-		p1Score = new JLabel("0", SwingConstants.CENTER);
-		turn = new JLabel("Player 1", SwingConstants.CENTER);
-		p2Score = new JLabel("0", SwingConstants.CENTER);
+		shipLeftLabel = new JLabel("Number of ship left: " + Integer.toString(ENGINE.getNumberOfShipsLeft()),
+				SwingConstants.CENTER);
+		p1Score = new JLabel(Integer.toString(ENGINE.getScoreBoard().getScore(1)), SwingConstants.CENTER);
+		turn = new JLabel("Player " + Integer.toString(ENGINE.getCurrentPlayer()), SwingConstants.CENTER);
+		p2Score = new JLabel(Integer.toString(ENGINE.getScoreBoard().getScore(2)), SwingConstants.CENTER);
 		notification = new JLabel("", SwingConstants.CENTER);
 
 		highScoreButton.addActionListener(this);
@@ -120,25 +189,14 @@ public class MainWindow extends JFrame implements ActionListener {
 		top.add(p2Score);
 		top.add(notification);
 
-		// Map panel contains cells that represent coordinates on the board.
-		JPanel map = new JPanel();
-		map.setLayout(new GridLayout(CURRENT_BOARD.getBoardSizeY(),CURRENT_BOARD.getBoardSizeX(),10,10));
-
-		// Get the ship Object from shipMap and pass it to generate a cell
-		for (int coordY = 0; coordY < CURRENT_BOARD.getBoardSizeY(); coordY++) {
-			for (int coordX = 0; coordX < CURRENT_BOARD.getBoardSizeX(); coordX++) {
-				Ship thisShip = CURRENT_BOARD.getShip(coordX, coordY);
-				Cell cell = new Cell(coordX, coordY, thisShip);
-				cell.addAnotherListener(this);
-				cell.addAnotherListener(cell);
-				map.add(cell.getCell());
-			}
-		}
+		// The map is one component that paints every coordinate on the board
+		boardView = new BoardView(CURRENT_BOARD);
+		boardView.addActionListener(this);
 
 		add(Box.createVerticalStrut(10));
 		add(top);
 		add(Box.createVerticalStrut(10));
-		add(map);
+		add(boardView);
 		add(Box.createVerticalStrut(10));
 
 		pack();
@@ -148,28 +206,23 @@ public class MainWindow extends JFrame implements ActionListener {
 	@Override
 	public void actionPerformed(ActionEvent e) {
 
+		EdtWatchdog.action(e.getActionCommand()); // Named in a stall report
+
 		if (e.getActionCommand().equals("quit")) { // Quit Button
 			int choice = JOptionPane.showOptionDialog(this,"Are you sure? The game is not finished.", 
 					"Quit Game", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE, null, null, null);
 			if (choice == JOptionPane.YES_OPTION) {
+				clearAutosave(); // The game is given up, not to be resumed
 				setVisible(false);
 			}
 
 		} else if (e.getActionCommand().equals("highscore")) { // High Scores Button
 
-			// Read highscore.txt and pop up a window
-			try(BufferedReader br = new BufferedReader(new FileReader("highscores.txt"))) {
-				String highscores = "";
-				for (int i = 0; i < 11; i++) {
-					highscores += br.readLine() + "\n";
-				}
-				JTextArea ta = new JTextArea(highscores); // For better formatting
-				ta.setBackground(null);
-				ta.setEditable(false);
-				JOptionPane.showMessageDialog(this, ta, "HIGHSCORE", JOptionPane.PLAIN_MESSAGE);
-			} catch (Exception ee) {
-				ee.printStackTrace();
-			}
+			// Pop up the cached high score table
+			JTextArea ta = new JTextArea(Leaderboard.getDefault().getText()); // For better formatting
+			ta.setBackground(null);
+			ta.setEditable(false);
+			JOptionPane.showMessageDialog(this, ta, "HIGHSCORE", JOptionPane.PLAIN_MESSAGE);
 
 		} else { // Map buttons
 
@@ -177,71 +230,86 @@ public class MainWindow extends JFrame implements ActionListener {
 			String stringCoord = e.getActionCommand();
 			int coordX = Integer.parseInt(stringCoord.split("\t")[0]);
 			int coordY = Integer.parseInt(stringCoord.split("\t")[1]);
-			CURRENT_BOARD.hit(coordX, coordY);
-
-			int scoreToAdd = 0;
-			Ship ship = CURRENT_BOARD.getShip(coordX, coordY);
-
-			// Calculate score
-			if (ship != null) {
-				if (playerNo == 2) {
-					// Second player advantage is 0 or 5 depending on user selection
-					scoreToAdd = ship.getScore() * ship.isDown() + PLAYER_BONUS;
-				} else {
-					scoreToAdd = ship.getScore() * ship.isDown();
-				}
-			}
+			boolean bGameOver = fireAt(coordX, coordY);
 
-			// Calculate number of ships left and generate notifications
-			if (ship != null && ship.isDown() == 2) {
-				noOfShipsLeft--;
-				shipLeftLabel.setText("Number of ship left: " + Integer.toString(noOfShipsLeft));
-				notification.setText("The " + ship.getShipType().name().toLowerCase() + " has sunk!");
-				revalidate();
-			} else {
-				notification.setText("");
-				revalidate();
+			// The computer answers right away as player 2
+			if (COMPUTER != null && !bGameOver && ENGINE.getCurrentPlayer() == 2) {
+				int cell = COMPUTER.nextShot();
+				fireAt(cell % CURRENT_BOARD.getBoardSizeX(), cell / CURRENT_BOARD.getBoardSizeX());
 			}
+		}
 
-			// Update scores
-			CURRENT_SCOREBOARD.addScoreToPlayer(scoreToAdd, playerNo);
-			p1Score.setText(Integer.toString(CURRENT_SCOREBOARD.getScore(1)));
-			p2Score.setText(Integer.toString(CURRENT_SCOREBOARD.getScore(2)));
-			revalidate();
 
-			// If game is over, report the winner and ask whether to start a new game
-			bGameOver = CURRENT_BOARD.allHit();
-			if (bGameOver) {
-				CURRENT_SCOREBOARD.evaluateHighscore();
-				String winMessage = "";
-				switch (CURRENT_SCOREBOARD.getWinner()) {
-				case 0: {winMessage = "Tied.\n"; break;}
-				case 1: {winMessage = "Player 1 is the winner!\n"; break;}
-				case 2: {winMessage = "Player 2 is the winner!\n"; break;}
-				}
-				winMessage += "Want to start a new game?";
-				Object[] options = {"New Game", "Quit"};
-				int choice = JOptionPane.showOptionDialog(this, winMessage, "Game Over",  JOptionPane.YES_NO_OPTION, 
-						JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
-				if (choice == JOptionPane.YES_OPTION) {new IntroWindow();}
+	}
 
-				setVisible(false);
-			}
+	// Fire at a coordinate for the current player and update the labels.
+	// Returns true if the shot ended the game.
+	boolean fireAt(int coordX, int coordY) {
+
+		int result = ENGINE.fire(coordX, coordY);
+		boardView.reveal(coordX, coordY); // Hide the button, show the color
+		if (COMPUTER != null) {
+			COMPUTER.observe(coordX, coordY, result); // The computer sees every shot on the board
+		}
+		ShipType sunkShip = ShotResult.isSunk(result) ? ShotResult.shipType(result) : null;
 
-			// Update player turn
-			changePlayer();
-			turn.setText("Player " + Integer.toString(playerNo));
+		// Update number of ships left and generate notifications
+		if (sunkShip != null) {
+			shipLeftLabel.setText("Number of ship left: " + Integer.toString(ENGINE.getNumberOfShipsLeft()));
+			notification.setText("The " + sunkShip.name().toLowerCase() + " has sunk!");
+			revalidate();
+		} else {
+			notification.setText("");
 			revalidate();
 		}
 
+		// Update scores
+		ScoreBoard scoreBoard = ENGINE.getScoreBoard();
+		p1Score.setText(Integer.toString(scoreBoard.getScore(1)));
+		p2Score.setText(Integer.toString(scoreBoard.getScore(2)));
+		revalidate();
+
+		// If game is over, report the winner and ask whether to start a new game
+		if (ShotResult.isGameOver(result)) {
+			clearAutosave();
+			DiskIO.execute(scoreBoard::evaluateHighscore); // Written on the disk thread
+			String winMessage = "";
+			switch (scoreBoard.getWinner()) {
+			case 0: {winMessage = "Tied.\n"; break;}
+			case 1: {winMessage = "Player 1 is the winner!\n"; break;}
+			case 2: {winMessage = (COMPUTER == null ? "Player 2" : "The computer") + " is the winner!\n"; break;}
+			}
+			winMessage += "Want to start a new game?";
+			Object[] options = {"New Game", "Quit"};
+			int choice = JOptionPane.showOptionDialog(this, winMessage, "Game Over",  JOptionPane.YES_NO_OPTION, 
+					JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+			if (choice == JOptionPane.YES_OPTION) {new IntroWindow();}
+
+			setVisible(false);
+			return true;
+		}
 
+		// Update player turn
+		turn.setText("Player " + Integer.toString(ENGINE.getCurrentPlayer()));
+		revalidate();
+		autosave();
+		return false;
 	}
 
-	void changePlayer() {
-		if (playerNo == 1) {
-			playerNo = 2;
-		} else {
-			playerNo = 1;
+	// Save the game as it is after this move; a copy into a mapped file, fast enough for the EDT
+	void autosave() {
+		try {
+			Autosave.getDefault().save(new GameSnapshot(ENGINE, COMPUTER == null ? 0 : COMPUTER_OPTION));
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace(); // The game goes on without autosave
+		}
+	}
+
+	void clearAutosave() {
+		try {
+			Autosave.getDefault().clear();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
 		}
 	}
 
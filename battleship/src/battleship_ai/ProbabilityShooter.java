@@ -0,0 +1,346 @@
+/*
+ * Name: ProbabilityShooter.java
+ * Description: A computer opponent that fires where a ship is most likely to be.
+ * For every ship type it keeps the placements that are still possible, i.e. that do not
+ * cover a miss or a sunk ship, and counts for every coordinate how many of them cover it.
+ * While there are hits on ships not sunk yet it is in target mode and only counts the
+ * placements through those hits, weighted by the number of hits they explain. Otherwise it
+ * hunts with the plain counts. Ties are broken at random.
+ *
+ * The counts are built once per board size and then updated after each shot for the
+ * placements through the coordinate that was hit only, so a shot costs a few dozen updates
+ * instead of a scan of every placement on the board.
+ *
+ * Given a TranspositionTable, the coordinates tied for the best count are remembered per
+ * position, keyed by the ZobristHash of the shot states, so a position reached again, in the
+ * same game or in another one on a board of the same size, is not scanned again. The scan
+ * is cheap next to the updates, so this mostly pays off for many games on small boards,
+ * where openings repeat. The shot is drawn among the ties the same way with or without the
+ * table, so games do not depend on what the table holds.
+ */
+
+package battleship_ai;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import battleship_data.ShipType;
+import battleship_data.ShotResult;
+
+public class ProbabilityShooter implements ShootingStrategy {
+
+	// States of a coordinate
+	static final byte UNKNOWN = 0;
+	static final byte MISS = 1;
+	static final byte HIT = 2; // Hit, ship not sunk yet
+	static final byte SUNK = 3;
+
+	static final int MAX_CACHED_TIES = 4; // Positions with more coordinates tied are not cached
+	static final int CELL_BITS = 15; // Bits per coordinate of a cached position; larger boards are not cached
+	static final int TIE_COUNT_BITS = 3;
+
+	private static final ShipType[] TYPES = ShipType.values();
+
+	private final TranspositionTable TABLE; // May be shared with other shooters; null for none
+	private final ZobristHash HASH = new ZobristHash();
+
+	private int sizeX;
+	private int sizeY;
+	private Random rand;
+
+	private byte[] state = new byte[0]; // State of every coordinate, y * sizeX + x
+	private int[] density = new int[0]; // Possible placements covering each coordinate
+	private int[] emptyDensity = new int[0]; // The same on an empty board, kept between games
+	private int[] targetDensity = new int[0]; // The same, for placements through unsunk hits, weighted by hits
+	private boolean[][] alive = new boolean[TYPES.length][]; // [type][placement]; covers no miss or sunk ship
+	private byte[][] hitsCovered = new byte[TYPES.length][]; // [type][placement]; unsunk hits it covers
+	private int unsunkHits; // Coordinates in state HIT
+	private int bestCount; // Count of the coordinates found by the last pick()
+	private int[] ties = new int[0]; // The coordinates found by the last pick()
+	private int shots; // Shots observed this game
+
+	public ProbabilityShooter() {
+		this(null);
+	}
+
+	// A shooter caching its positions in the given table, which may be shared; null for none
+	public ProbabilityShooter(TranspositionTable table) {
+		this.TABLE = table;
+	}
+
+	@Override
+	public void reset(int sizeX, int sizeY, Random rand) {
+		this.rand = rand;
+		int cells = sizeX * sizeY;
+		if (sizeX != this.sizeX || sizeY != this.sizeY || state.length != cells) {
+			this.sizeX = sizeX;
+			this.sizeY = sizeY;
+			state = new byte[cells];
+			density = new int[cells];
+			emptyDensity = new int[cells];
+			targetDensity = new int[cells];
+			ties = new int[cells];
+			for (int t = 0; t < TYPES.length; t++) {
+				int placements = horizontalPlacements(t) + verticalPlacements(t);
+				alive[t] = new boolean[placements];
+				hitsCovered[t] = new byte[placements];
+
+				// Every in-bound placement is possible on an empty board
+				int length = TYPES[t].getLength();
+				for (int p = 0; p < placements; p++) {
+					int cell = firstCell(t, p);
+					int step = step(t, p);
+					for (int i = 0; i < length; i++, cell += step) {
+						emptyDensity[cell]++;
+					}
+				}
+			}
+		}
+
+		Arrays.fill(state, UNKNOWN);
+		System.arraycopy(emptyDensity, 0, density, 0, cells);
+		Arrays.fill(targetDensity, 0);
+		for (int t = 0; t < TYPES.length; t++) {
+			Arrays.fill(alive[t], true);
+			Arrays.fill(hitsCovered[t], (byte) 0);
+		}
+		unsunkHits = 0;
+		shots = 0;
+		HASH.reset(sizeX, sizeY);
+	}
+
+	@Override
+	public int nextShot() {
+		boolean cached = TABLE != null && state.length <= 1 << CELL_BITS;
+		long position = HASH.get();
+		if (cached) {
+			long value = TABLE.get(position);
+			if (value != TranspositionTable.MISSING) {
+				int count = (int) value & ((1 << TIE_COUNT_BITS) - 1);
+				int cell = (int) (value >>> (TIE_COUNT_BITS + CELL_BITS * rand.nextInt(count))) & ((1 << CELL_BITS) - 1);
+				if (state[cell] == UNKNOWN) {
+					return cell;
+				}
+				// Another position with the same hash; evaluate this one
+			}
+		}
+
+		int count = 0;
+		if (unsunkHits > 0) {
+			count = pick(targetDensity);
+			if (bestCount <= 0) {
+				count = 0; // Hits that no placement explains any more; hunt instead
+			}
+		}
+		if (count == 0) {
+			count = pick(density);
+		}
+		if (count == 0) {
+			return -1; // Every coordinate was fired at
+		}
+
+		if (cached && count <= MAX_CACHED_TIES) {
+			long value = count;
+			for (int i = 0; i < count; i++) {
+				value |= (long) ties[i] << (TIE_COUNT_BITS + CELL_BITS * i);
+			}
+			TABLE.put(position, value, shots);
+		}
+		return ties[rand.nextInt(count)];
+	}
+
+	// Find the unknown coordinates with the highest count. Returns how many there are; they
+	// are in ties, in increasing order.
+	int pick(int[] counts) {
+		int found = 0;
+		bestCount = -1;
+		for (int cell = 0; cell < state.length; cell++) {
+			if (state[cell] != UNKNOWN) {
+				continue;
+			}
+			int count = counts[cell];
+			if (count > bestCount) {
+				bestCount = count;
+				found = 0;
+			}
+			if (count == bestCount) {
+				ties[found++] = cell;
+			}
+		}
+		return found;
+	}
+
+	@Override
+	public void observe(int coordX, int coordY, int result) {
+		int cell = coordY * sizeX + coordX;
+		if (state[cell] != UNKNOWN) {
+			return;
+		}
+		shots++;
+		switch (ShotResult.outcome(result)) {
+		case ShotResult.MISS: {
+			setState(cell, MISS);
+			block(coordX, coordY);
+			break;
+		}
+		case ShotResult.HIT: {
+			markHit(coordX, coordY);
+			break;
+		}
+		case ShotResult.SUNK:
+		case ShotResult.GAME_OVER: {
+			markHit(coordX, coordY);
+			sink(coordX, coordY, ShotResult.shipType(result));
+			break;
+		}
+		}
+	}
+
+	// The coordinate can no longer hold an unknown ship: drop every placement through it
+	void block(int coordX, int coordY) {
+		for (int t = 0; t < TYPES.length; t++) {
+			int length = TYPES[t].getLength();
+			for (int p = firstHorizontal(t, coordX, coordY); p >= 0 && p <= lastHorizontal(t, coordX, coordY); p++) {
+				if (alive[t][p]) {
+					kill(t, p, length);
+				}
+			}
+			for (int y = Math.max(0, coordY - length + 1); y <= Math.min(coordY, sizeY - length); y++) {
+				int p = horizontalPlacements(t) + y * sizeX + coordX;
+				if (alive[t][p]) {
+					kill(t, p, length);
+				}
+			}
+		}
+	}
+
+	// A ship was hit but not sunk: the placements through it now explain one more hit
+	void markHit(int coordX, int coordY) {
+		setState(coordY * sizeX + coordX, HIT);
+		unsunkHits++;
+		for (int t = 0; t < TYPES.length; t++) {
+			int length = TYPES[t].getLength();
+			for (int p = firstHorizontal(t, coordX, coordY); p >= 0 && p <= lastHorizontal(t, coordX, coordY); p++) {
+				coverHit(t, p, length);
+			}
+			for (int y = Math.max(0, coordY - length + 1); y <= Math.min(coordY, sizeY - length); y++) {
+				coverHit(t, horizontalPlacements(t) + y * sizeX + coordX, length);
+			}
+		}
+	}
+
+	private void coverHit(int t, int p, int length) {
+		if (!alive[t][p]) {
+			return;
+		}
+		hitsCovered[t][p]++;
+		int cell = firstCell(t, p);
+		int step = step(t, p);
+		for (int i = 0; i < length; i++, cell += step) {
+			targetDensity[cell]++;
+		}
+	}
+
+	// Remove a placement and its share of both counts
+	private void kill(int t, int p, int length) {
+		alive[t][p] = false;
+		int hits = hitsCovered[t][p];
+		int cell = firstCell(t, p);
+		int step = step(t, p);
+		for (int i = 0; i < length; i++, cell += step) {
+			density[cell]--;
+			targetDensity[cell] -= hits;
+		}
+	}
+
+	// A ship of the given type sank with a shot at the coordinate. Find a line of unsunk hits of
+	// its length through the coordinate, mark those coordinates sunk and block them.
+	void sink(int coordX, int coordY, ShipType type) {
+		int t = type.ordinal();
+		int length = type.getLength();
+		int sunkCells = -1;
+		int sunkStep = 0;
+		for (int p = firstHorizontal(t, coordX, coordY); p >= 0 && p <= lastHorizontal(t, coordX, coordY); p++) {
+			if (allHit(firstCell(t, p), 1, length)) {
+				sunkCells = firstCell(t, p);
+				sunkStep = 1;
+				break;
+			}
+		}
+		for (int y = Math.max(0, coordY - length + 1); sunkCells < 0 && y <= Math.min(coordY, sizeY - length); y++) {
+			int first = y * sizeX + coordX;
+			if (allHit(first, sizeX, length)) {
+				sunkCells = first;
+				sunkStep = sizeX;
+			}
+		}
+
+		// The hits are ambiguous; only the last shot is known to be part of the sunk ship
+		if (sunkCells < 0) {
+			sunkCells = coordY * sizeX + coordX;
+			sunkStep = 0;
+			length = 1;
+		}
+
+		for (int i = 0, cell = sunkCells; i < length; i++, cell += sunkStep) {
+			setState(cell, SUNK);
+			unsunkHits--;
+			block(cell % sizeX, cell / sizeX);
+		}
+	}
+
+	private void setState(int cell, byte to) {
+		HASH.update(cell, state[cell], to);
+		state[cell] = to;
+	}
+
+	private boolean allHit(int cell, int step, int length) {
+		for (int i = 0; i < length; i++, cell += step) {
+			if (state[cell] != HIT) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Placements of a type are numbered horizontal first, row by row, then vertical, row by row
+	private int horizontalPlacements(int t) {
+		int length = TYPES[t].getLength();
+		return sizeX < length ? 0 : (sizeX - length + 1) * sizeY;
+	}
+
+	private int verticalPlacements(int t) {
+		int length = TYPES[t].getLength();
+		return sizeY < length ? 0 : sizeX * (sizeY - length + 1);
+	}
+
+	// First and last horizontal placement of the type through a coordinate; first > last if none
+	private int firstHorizontal(int t, int coordX, int coordY) {
+		int length = TYPES[t].getLength();
+		if (sizeX < length) {
+			return -1;
+		}
+		return coordY * (sizeX - length + 1) + Math.max(0, coordX - length + 1);
+	}
+
+	private int lastHorizontal(int t, int coordX, int coordY) {
+		int length = TYPES[t].getLength();
+		if (sizeX < length) {
+			return -2;
+		}
+		return coordY * (sizeX - length + 1) + Math.min(coordX, sizeX - length);
+	}
+
+	private int firstCell(int t, int p) {
+		int horizontal = horizontalPlacements(t);
+		if (p < horizontal) {
+			int perRow = sizeX - TYPES[t].getLength() + 1;
+			return (p / perRow) * sizeX + p % perRow;
+		}
+		return p - horizontal;
+	}
+
+	private int step(int t, int p) {
+		return p < horizontalPlacements(t) ? 1 : sizeX;
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Name: RandomShooter.java
+ * Description: Fire at every coordinate exactly once, in a random order.
+ * The order is a shuffle of all coordinates, kept between games to avoid allocating.
+ */
+
+package battleship_ai;
+
+import java.util.Random;
+
+public class RandomShooter implements ShootingStrategy {
+
+	private int[] order = new int[0]; // Shuffled coordinates, packed as y * sizeX + x
+	private int next; // Position of the next shot in order
+
+	@Override
+	public void reset(int sizeX, int sizeY, Random rand) {
+		int cells = sizeX * sizeY;
+		if (order.length != cells) {
+			order = new int[cells];
+		}
+		for (int i = 0; i < cells; i++) {
+			order[i] = i;
+		}
+
+		// Fisher-Yates shuffle
+		for (int i = cells - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		next = 0;
+	}
+
+	@Override
+	public int nextShot() {
+		return order[next++];
+	}
+
+	@Override
+	public void observe(int coordX, int coordY, int result) {
+		// The order does not depend on results
+	}
+}
@@ -0,0 +1,24 @@
+/*
+ * Name: ShootingStrategy.java
+ * Description: Decide where to fire next in a game, from the results of the previous shots.
+ * Both players of a game share one board, so one strategy sees every shot of the game.
+ * A strategy is used by one thread at a time and is reset between games so that it can be
+ * reused without allocating.
+ */
+
+package battleship_ai;
+
+import java.util.Random;
+
+public interface ShootingStrategy {
+
+	// Forget the previous game and start a new one on a board of the given size.
+	// All randomness of the strategy comes from the given generator, so games are reproducible.
+	void reset(int sizeX, int sizeY, Random rand);
+
+	// The coordinate to fire at next, packed as y * sizeX + x. Never a coordinate already fired at.
+	int nextShot();
+
+	// The result of a shot, packed by battleship_data.ShotResult
+	void observe(int coordX, int coordY, int result);
+}
@@ -0,0 +1,106 @@
+/*
+ * Name: TranspositionTable.java
+ * Description: A fixed-size cache of evaluated positions, keyed by their ZobristHash, so a
+ * shooter reaching a position again, later in a game or in another game on a board of the
+ * same size, takes its earlier decision instead of evaluating the position again.
+ * The table is an array of buckets of two entries. The first entry of a bucket keeps the
+ * position with the fewest shots fired, which recur most between games, and is only
+ * replaced by a position with as few shots or fewer; the second takes whatever the first
+ * does not. A lookup or store is therefore two array reads and never allocates.
+ *
+ * Shooters on several threads may share a table without locks. Each entry stores its key
+ * exclusive-ored with its value, so an entry torn by two threads writing at once no longer
+ * matches its key and reads as missing instead of as a wrong value.
+ */
+
+package battleship_ai;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TranspositionTable {
+
+	public static final long MISSING = -1; // Returned for positions not in the table; values must not be negative
+	static final int DEFAULT_BUCKETS = 1 << 15; // About 1.3 MB
+
+	private final long[] CHECKS; // [2 * bucket + entry]: key ^ value
+	private final long[] VALUES;
+	private final int[] SHOTS; // Shots fired in the position of the entry
+	private final int MASK; // Buckets - 1
+
+	private final LongAdder PROBES = new LongAdder();
+	private final LongAdder HITS = new LongAdder();
+
+	public TranspositionTable() {
+		this(DEFAULT_BUCKETS);
+	}
+
+	// The number of buckets is rounded up to a power of two; each takes 40 bytes
+	public TranspositionTable(int buckets) {
+		int size = Integer.highestOneBit(Math.max(1, buckets - 1)) << 1;
+		CHECKS = new long[2 * size];
+		VALUES = new long[2 * size];
+		SHOTS = new int[2 * size];
+		MASK = size - 1;
+		clear();
+	}
+
+	// The value stored for the position, or MISSING
+	public long get(long key) {
+		PROBES.increment();
+		int entry = 2 * ((int) (key ^ (key >>> 32)) & MASK);
+		for (int i = entry; i < entry + 2; i++) {
+			long value = VALUES[i];
+			if ((CHECKS[i] ^ value) == key && value != MISSING) {
+				HITS.increment();
+				return value;
+			}
+		}
+		return MISSING;
+	}
+
+	// Store the value of a position in which the given number of shots were fired
+	public void put(long key, long value, int shots) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Values must not be negative: " + value);
+		}
+		int entry = 2 * ((int) (key ^ (key >>> 32)) & MASK);
+		if (VALUES[entry] == MISSING || shots <= SHOTS[entry] || (CHECKS[entry] ^ VALUES[entry]) == key) {
+			store(entry, key, value, shots);
+		} else {
+			store(entry + 1, key, value, shots);
+		}
+	}
+
+	private void store(int i, long key, long value, int shots) {
+		VALUES[i] = value;
+		CHECKS[i] = key ^ value;
+		SHOTS[i] = shots;
+	}
+
+	// Forget every position and the statistics
+	public void clear() {
+		Arrays.fill(VALUES, MISSING);
+		Arrays.fill(CHECKS, 0);
+		PROBES.reset();
+		HITS.reset();
+	}
+
+	public long getProbes() {
+		return PROBES.sum();
+	}
+
+	public long getHits() {
+		return HITS.sum();
+	}
+
+	// Fraction of the lookups that found their position
+	public double getHitRate() {
+		long probes = getProbes();
+		return probes == 0 ? 0 : (double) getHits() / probes;
+	}
+
+	public int getCapacity() {
+		return VALUES.length;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Name: ZobristHash.java
+ * Description: A 64-bit hash of the shot state of every coordinate of a board, updated with
+ * one exclusive or per change, to look positions up in a TranspositionTable.
+ * The hash is the exclusive or of a key per (coordinate, state) over every coordinate not
+ * in the state 0, the unknown state, plus a key of the board size. Keys are not stored in a
+ * table: each one is the SplitMix64 output for its coordinate and state, which is as
+ * random as a table of keys and the same in every shooter, so tables can be shared by
+ * shooters playing on boards of one size.
+ */
+
+package battleship_ai;
+
+import battleship_data.SplitMix;
+
+final class ZobristHash {
+
+	static final int STATES = 4; // States per coordinate, including the unknown state 0
+
+	private long hash;
+
+	// Start over on an empty board of the given size
+	void reset(int sizeX, int sizeY) {
+		hash = mix(((long) sizeX << 32 | sizeY) ^ 0x5851f42d4c957f2dL);
+	}
+
+	// The coordinate changed from one state to another
+	void update(int cell, int from, int to) {
+		hash ^= key(cell, from) ^ key(cell, to);
+	}
+
+	long get() {
+		return hash;
+	}
+
+	static long key(int cell, int state) {
+		return state == 0 ? 0 : mix((long) cell * STATES + state);
+	}
+
+	// One step of SplitMix64: the golden ratio increment, then the shared finalizer
+	static long mix(long z) {
+		return SplitMix.mix(z + 0x9e3779b97f4a7c15L);
+	}
+}
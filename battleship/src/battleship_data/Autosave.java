@@ -0,0 +1,179 @@
+/*
+ * Name: Autosave.java
+ * Description: Keep the last snapshot of the game in progress in a small memory-mapped file,
+ * so that a game survives the program being closed or crashing and can be resumed at once.
+ * Saving copies the snapshot into the mapping without a system call, so it can be done
+ * after every move; the operating system writes the pages out, and force() is only called
+ * when the autosave is closed.
+ *
+ * The file has a header (magic number, version, slot size) and two slots. Each slot holds
+ * a sequence number, the length of its snapshot, a CRC32 of it, then the snapshot. A save
+ * goes to the older slot and writes its sequence number last, so a save cut off half way
+ * leaves the other slot, with the previous move, as the newest valid one. A slot of
+ * length 0 means there is no game to resume.
+ */
+
+package battleship_data;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+public class Autosave implements AutoCloseable {
+
+	static final int MAGIC = 0x42534153; // "BSAS"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16; // Magic, version, slot size, reserved
+	static final int SLOT_HEADER_SIZE = 16; // Sequence, length, CRC32
+	static final int DEFAULT_SLOT_SIZE = 4096; // Grows when a snapshot does not fit
+	static final int MAX_SLOT_SIZE = (Integer.MAX_VALUE - HEADER_SIZE) / 2;
+
+	private static Autosave defaultAutosave;
+
+	private final Path FILE;
+	private final CRC32 CRC = new CRC32();
+	private MappedByteBuffer map;
+	private int slotSize; // Bytes per slot, slot header included
+	private long sequence; // Of the newest slot
+
+	// Open the file, or create it with two empty slots
+	public Autosave(Path file) throws IOException {
+		this.FILE = file;
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			if (channel.size() >= HEADER_SIZE) {
+				MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+				int size = header.getInt(8);
+				if (header.getInt(0) == MAGIC && header.getInt(4) == VERSION && size >= SLOT_HEADER_SIZE
+						&& size <= MAX_SLOT_SIZE && channel.size() >= HEADER_SIZE + 2L * size) {
+					map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 2L * size);
+					slotSize = size;
+					sequence = Math.max(map.getLong(slotOffset(0)), map.getLong(slotOffset(1)));
+					return;
+				}
+			}
+			format(channel, DEFAULT_SLOT_SIZE);
+		}
+	}
+
+	// The autosave autosave.bin in the working directory, written out when the program exits
+	public static synchronized Autosave getDefault() {
+		if (defaultAutosave == null) {
+			try {
+				Autosave autosave = new Autosave(Paths.get("autosave.bin"));
+				Runtime.getRuntime().addShutdownHook(new Thread(autosave::close, "autosave-close"));
+				defaultAutosave = autosave;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return defaultAutosave;
+	}
+
+	// Make the snapshot the one to resume from
+	public synchronized void save(GameSnapshot snapshot) throws IOException {
+		long needed = SLOT_HEADER_SIZE + snapshot.maxSize();
+		if (needed > slotSize) {
+			grow(needed);
+		}
+		int offset = slotOffset(nextSlot());
+		ByteBuffer data = map.duplicate();
+		data.position(offset + SLOT_HEADER_SIZE);
+		snapshot.writeTo(data);
+		publish(offset, data.position() - offset - SLOT_HEADER_SIZE);
+	}
+
+	// There is no game to resume any more, e.g. after it ended
+	public synchronized void clear() {
+		publish(slotOffset(nextSlot()), 0);
+	}
+
+	// The newest snapshot saved, or null if there is none or it was cleared. A damaged slot
+	// is skipped for the other one.
+	public synchronized GameSnapshot load() {
+		int newest = map.getLong(slotOffset(0)) >= map.getLong(slotOffset(1)) ? 0 : 1;
+		for (int slot : new int[] {newest, 1 - newest}) {
+			int offset = slotOffset(slot);
+			int length = map.getInt(offset + 8);
+			if (length == 0 && map.getLong(offset) != 0) {
+				return null; // Cleared
+			}
+			if (length <= 0 || length > slotSize - SLOT_HEADER_SIZE
+					|| checksum(offset, length) != map.getInt(offset + 12)) {
+				continue;
+			}
+			ByteBuffer data = map.duplicate();
+			data.position(offset + SLOT_HEADER_SIZE).limit(offset + SLOT_HEADER_SIZE + length);
+			try {
+				return GameSnapshot.read(data);
+			} catch (IllegalArgumentException e) {
+				// Written by another version or damaged; try the older slot
+			}
+		}
+		return null;
+	}
+
+	// Write the mapped pages to the disk
+	@Override
+	public synchronized void close() {
+		map.force();
+	}
+
+	public Path getFile() {
+		return FILE;
+	}
+
+	// The slot to write next: the older one
+	private int nextSlot() {
+		return map.getLong(slotOffset(0)) <= map.getLong(slotOffset(1)) ? 0 : 1;
+	}
+
+	private int slotOffset(int slot) {
+		return HEADER_SIZE + slot * slotSize;
+	}
+
+	// Fill in the slot header of data already written; the sequence number goes last
+	private void publish(int offset, int length) {
+		map.putInt(offset + 8, length);
+		map.putInt(offset + 12, length == 0 ? 0 : checksum(offset, length));
+		map.putLong(offset, ++sequence);
+	}
+
+	private int checksum(int offset, int length) {
+		ByteBuffer data = map.duplicate();
+		data.position(offset + SLOT_HEADER_SIZE).limit(offset + SLOT_HEADER_SIZE + length);
+		CRC.reset();
+		CRC.update(data);
+		return (int) CRC.getValue();
+	}
+
+	// Make room for a larger snapshot; the saved snapshots are dropped, as the next save
+	// replaces them anyway
+	private void grow(long needed) throws IOException {
+		if (needed > MAX_SLOT_SIZE) {
+			throw new IOException("Game snapshot too large to autosave: " + needed + " bytes.");
+		}
+		int size = (int) Math.min(MAX_SLOT_SIZE, Math.max(needed, 2L * slotSize));
+		try (FileChannel channel = FileChannel.open(FILE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			format(channel, size);
+		}
+	}
+
+	// Start the file over with two empty slots of the given size
+	private void format(FileChannel channel, int size) throws IOException {
+		channel.truncate(0);
+		map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + 2L * size);
+		map.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, size).putInt(12, 0);
+		slotSize = size;
+		for (int slot = 0; slot < 2; slot++) {
+			int offset = slotOffset(slot);
+			map.putLong(offset, 0).putInt(offset + 8, 0).putInt(offset + 12, 0);
+		}
+	}
+}
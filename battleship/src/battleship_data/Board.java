@@ -1,293 +1,227 @@
 /*
  * Name: Board.java
  * Description: 
- * A board object is generated with a file object or board size.
- * For the former, it checks whether the layout is valid, which means the ships
+ * A board object is generated with a file object, a layout (also read from a corpus) or board size.
+ * For a file, LayoutParser checks whether the layout is valid, which means the ships
  * are of correct size, shape, not out of bound and not overlapping.
  * For the latter, it generates ships randomly and put then on the map.
  * 
- * It then documents the locations of the ships as "ShipMap", where it passes the hit
- * signal to the ship objects, and the locations that are hit as "hitMap". where it
- * determines whether the game is over.
+ * It then documents the ship number on every coordinate, which points into the fleet so
+ * the hit signal can be passed to the ship objects, and the coordinates that have been hit,
+ * in a cell store: packed bitsets for boards of limited area, or hash tables holding only
+ * ship and shot coordinates for large boards. A counter of remaining ship coordinates
+ * determines whether the game is over without scanning the board.
+ * fire() takes a whole shot in one call: it marks the coordinate, hits the part of the ship
+ * on it and returns a packed ShotResult, in constant time and without allocating.
+ * Building a board and every hit are recorded as BoardConstructionEvents and ShotEvents
+ * when a flight recording enables them.
  */
 
 package battleship_data;
 
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Random;
-import java.util.Scanner;
 
 public class Board {
 
 	private final int NO_OF_SHIPS; // Number of ships on the board
 	private final int BOARD_SIZE_X; // The width of the map; horizontal length
 	private final int BOARD_SIZE_Y; // The height of the map; vertical length
-	private final boolean[][] HIT_MAP; // coordinates; true means no ship or ship has been hit on that coordinate
-	private final Ship[][] SHIP_MAP; // coordinates; points to the ship object on each coordinate
+	public static final int MIN_BOARD_SIZE = 5; // Smallest width and height of a board read from a file
+	public static final int MAX_BOARD_SIZE = 100000; // Largest width and height of a board read from a file
+	static final int MAX_DENSE_CELLS = 1 << 20; // Larger boards only store ship and shot coordinates
+
+	private final CellStore CELLS; // Ship number and shot state of every coordinate (y * width + x)
+	private final Ship[] FLEET; // FLEET[n - 1] is ship number n
+	private int remainingCells; // number of ship coordinates that have not been hit yet
+	private long placementAttempts; // placement tests the random generator needed; 0 for files
 
 	// Generate random ship placement for a board of certain size
 	public Board(int sizeX, int sizeY) {
+		this(sizeX, sizeY, new Random());
+	}
 
-		BOARD_SIZE_X = sizeX;
-		BOARD_SIZE_Y = sizeY;
+	// Generate reproducible random ship placement from a seed
+	public Board(int sizeX, int sizeY, long seed) {
+		this(sizeX, sizeY, new Random(seed));
+	}
 
-		HIT_MAP = new boolean[BOARD_SIZE_Y][BOARD_SIZE_X];
-		SHIP_MAP = new Ship[BOARD_SIZE_Y][BOARD_SIZE_X];
+	// Generate random ship placement with the given random number generator, so that parallel
+	// generators can each use their own. Throws IllegalArgumentException if the ships cannot fit.
+	public Board(int sizeX, int sizeY, Random rand) {
 
-		// Initialize the board where there are no ships
-		for (int i = 0; i < BOARD_SIZE_Y; i++) {
-			for (int j = 0; j < BOARD_SIZE_X; j++) {
-				HIT_MAP[i][j] = true;
-				SHIP_MAP[i][j] = null;
-			}
-		}
+		BoardConstructionEvent event = new BoardConstructionEvent();
+		event.begin();
+
+		BOARD_SIZE_X = sizeX;
+		BOARD_SIZE_Y = sizeY;
 
 		// Determine the number of ships to put on map
 		NO_OF_SHIPS = (BOARD_SIZE_X + BOARD_SIZE_Y) / 4;
-		int shipNumber = 1;
-
-		char[] directions = {'n', 'e', 's', 'w'};
 
-		Random rand = new Random();
-
-		// Convert random integers as array index to ship types
-		ShipType[] intToShip = {ShipType.CARRIER, ShipType.BATTLESHIP, ShipType.SUBMARINE, ShipType.DESTROYER};
+		// Initialize the board where there are no ships
+		CELLS = newCellStore(BOARD_SIZE_X, BOARD_SIZE_Y, NO_OF_SHIPS);
+		FLEET = new Ship[NO_OF_SHIPS];
+		remainingCells = 0;
 
-		while (shipNumber <= NO_OF_SHIPS) {
-			int coordX = rand.nextInt(BOARD_SIZE_X);
-			int coordY = rand.nextInt(BOARD_SIZE_Y);
-			ShipType type = intToShip[rand.nextInt(4)];
+		placementAttempts = new ShipPlacer(this, rand).place(NO_OF_SHIPS);
 
-			// "Grow" ships in four possible directions. If the ship is valid, try to put the ship
-			// on the map. If no overlapping, the ship generation is successful, move onto the next ship.
-			for (char direction : directions) {
-				ArrayList<ArrayList<Integer>> coordinates = growShip(coordX, coordY, direction, type);
-				if (isValidShip(type, coordinates) && putShipOnMap(type, shipNumber, coordinates)) {
-					shipNumber++;
-					break;
-				}
-			}
-		}
+		commit(event, true);
 	}
 
-	// Generate ship placement base on file
+	// Generate ship placement base on file. Throws LayoutException listing every problem in it.
 	public Board(File file) throws FileNotFoundException, IllegalArgumentException {
+		this(readLayout(file));
+	}
 
-		int noOfShipsInFile = 0;
-
-		try (Scanner sc = new Scanner(new FileReader(file))) {
-
-			BOARD_SIZE_X = BOARD_SIZE_Y = Integer.parseInt(sc.nextLine());
-
-			// Check if board size is between 5 to 10
-			if (BOARD_SIZE_X < 5) {
-				throw new IllegalArgumentException("The board is too small! Please use a number between 5 to 10.");
-			} else if (BOARD_SIZE_X > 10) {
-				throw new IllegalArgumentException("The board is too big! Please use a number between 5 to 10.");
-			}
-
-			// Count number of ships in the file
-			while(sc.hasNextLine()) {
-				noOfShipsInFile++;
-				sc.nextLine();
-			}
-
-			// Check if number of ships is within range
-			int minimumShipNumber = BOARD_SIZE_X / 2 - 1;
-			int maximumShipNumber = BOARD_SIZE_X / 2 + 1;
-			String noOfShipWarning = "Please only put " + minimumShipNumber + " to " + maximumShipNumber + " ships"
-					+ " for a(n) " + BOARD_SIZE_X + "x" + BOARD_SIZE_Y + " board.";
-
-			if (noOfShipsInFile > maximumShipNumber) {
-				throw new IllegalArgumentException("Too many ships! " + noOfShipWarning);
-			} else if (noOfShipsInFile < minimumShipNumber) {
-				throw new IllegalArgumentException("Too few ships! " + noOfShipWarning);
-			}
+	private static Layout readLayout(File file) throws FileNotFoundException {
+		try {
+			return LayoutParser.parse(file);
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
+	}
 
-		NO_OF_SHIPS = noOfShipsInFile;
-
-		String[] allShipsInfo = new String[noOfShipsInFile];
-
-		// Restart the scanner
-		try (Scanner sc = new Scanner(new FileReader(file))) {
-			sc.nextLine(); // Skip first line
+	// Put the ships of a layout on a new board
+	public Board(Layout layout) {
 
-			for (int i = 0; i < noOfShipsInFile; i++) {
-				allShipsInfo[i] = sc.nextLine();
-			}	
-		}
+		BoardConstructionEvent event = new BoardConstructionEvent();
+		event.begin();
 
-		HIT_MAP = new boolean[BOARD_SIZE_Y][BOARD_SIZE_X];
-		SHIP_MAP = new Ship[BOARD_SIZE_Y][BOARD_SIZE_X];
+		BOARD_SIZE_X = layout.getBoardSizeX();
+		BOARD_SIZE_Y = layout.getBoardSizeY();
+		NO_OF_SHIPS = layout.getNumberOfShips();
 
 		// Initialize the board where there are no ships
-		for (int i = 0; i < BOARD_SIZE_Y; i++) {
-			for (int j = 0; j < BOARD_SIZE_X; j++) {
-				HIT_MAP[i][j] = true; // true means no ship or ship has been hit
-				SHIP_MAP[i][j] = null;
+		CELLS = newCellStore(BOARD_SIZE_X, BOARD_SIZE_Y, NO_OF_SHIPS);
+		FLEET = new Ship[NO_OF_SHIPS];
+		remainingCells = 0;
+
+		for (int n = 1; n <= NO_OF_SHIPS; n++) {
+			if (!putShipOnMap(layout.getShipType(n), n, layout.getOriginX(n), layout.getOriginY(n), layout.isVertical(n))) {
+				throw new IllegalArgumentException("Ship number " + n + " is out of bound or overlapping.");
 			}
 		}
 
-		for (int i = 0; i < noOfShipsInFile; i++) {
-
-			String l = allShipsInfo[i];
-			String[] shipInfo = l.split(";");
-
-			// Get ship type
-			ShipType thisShipType = ShipType.valueOf(shipInfo[0].toUpperCase());
-
-
-			ArrayList<ArrayList<Integer>> coordinates = new ArrayList<ArrayList<Integer>>();
-			for (int j = 1; j < shipInfo.length; j++) {
-				String[] stringCoord = shipInfo[j].split("\\*");
-				ArrayList<Integer> coordinate = new ArrayList<>();
-				for (String s : stringCoord) {
-					coordinate.add(Integer.parseInt(s)-1); // Convert coordinates to 0-based
-				}
-				coordinates.add(coordinate);
-			}
+		commit(event, false);
+	}
 
-			// Generate a new ship if it is valid
-			if (isValidShip(thisShipType, coordinates)) {
-				if (!putShipOnMap(thisShipType, i + 1, coordinates)) {
-					throw new IllegalArgumentException("Overlapping ships.");
-				}
-			} else {
-				throw new IllegalArgumentException("Ship number " + Integer.toString(i + 1) + " is not a valid ship.");
-			}
+	private void commit(BoardConstructionEvent event, boolean random) {
+		if (event.shouldCommit()) {
+			event.sizeX = BOARD_SIZE_X;
+			event.sizeY = BOARD_SIZE_Y;
+			event.ships = NO_OF_SHIPS;
+			event.random = random;
+			event.placementAttempts = placementAttempts;
+			event.commit();
 		}
 	}
 
-	// Pass a coordinate, the function expands the coordinates in four possible directions: n, e, s, w
-	// depending on the ship type, then return a list of coordinates.
-	ArrayList<ArrayList<Integer>> growShip(int coordX, int coordY, char direction, ShipType type) {
-
-		ArrayList<ArrayList<Integer>> coordinates = new ArrayList<ArrayList<Integer>>();
-		ArrayList<Integer> coordinate = new ArrayList<Integer>();
-		coordinate.add(coordY);
-		coordinate.add(coordX);
-		coordinates.add(coordinate); // Add the initial coordinate
-
-		for (int i = 1 ; i < type.getLength() ; i++) {
-			ArrayList<Integer> nextCoord = new ArrayList<Integer>();
-			switch (direction) {
-			case 'n': {
-				coordY++;
-				break;
-			} case 's': {
-				coordY--;
-				break;
-			} case 'e': {
-				coordX++;
-				break;
-			} case 'w': {
-				coordX--;
-				break;
-			}
-			}
+	// Put layout number index of a corpus on a new board, without parsing any text
+	public Board(LayoutCorpus corpus, long index) {
+		this(corpus.get(index));
+	}
 
-			nextCoord.add(coordY);
-			nextCoord.add(coordX);
-			coordinates.add(nextCoord); // 
+	// Check if a ship of the given length, starting at the coordinate with the smallest x and y,
+	// lies within the board
+	boolean isInbound(int coordX, int coordY, boolean vertical, int length) {
+		if (coordX < 0 || coordY < 0) {
+			return false;
+		}
+		if (vertical) {
+			return coordX < BOARD_SIZE_X && (long) coordY + length <= BOARD_SIZE_Y;
 		}
+		return (long) coordX + length <= BOARD_SIZE_X && coordY < BOARD_SIZE_Y;
+	}
 
-		return coordinates;
+	// Check that none of the coordinates of an in-bound ship is already occupied
+	boolean isFree(int coordX, int coordY, boolean vertical, int length) {
+		return CELLS.isFree(cellIndex(coordX, coordY), vertical ? BOARD_SIZE_X : 1, length);
 	}
 
-	// Check if the ships are overlapping, if not generate a ship and put on map
+	// Check if the ship is in bound and not overlapping, if so generate a ship and put on map.
 	// Returns true if ship is successfully put.
-	boolean putShipOnMap(ShipType type, int shipNumber, ArrayList<ArrayList<Integer>> coordinates) {
+	boolean putShipOnMap(ShipType type, int shipNumber, int coordX, int coordY, boolean vertical) {
 
-		boolean noOverlap = true;
-		for (ArrayList<Integer> coordinate : coordinates) {
-			if (SHIP_MAP[coordinate.get(0)][coordinate.get(1)] != null) {
-				noOverlap = false;
-			}
+		int length = type.getLength();
+		if (!isInbound(coordX, coordY, vertical, length) || !isFree(coordX, coordY, vertical, length)) {
+			return false;
 		}
 
-		if (noOverlap) {
-			Ship thisShip = new Ship(type, shipNumber);
-			for (ArrayList<Integer> coordinate : coordinates) {
-				HIT_MAP[coordinate.get(0)][coordinate.get(1)] = false;
-				SHIP_MAP[coordinate.get(0)][coordinate.get(1)] = thisShip;
-			}
+		FLEET[shipNumber - 1] = new Ship(type, shipNumber, coordX, coordY, vertical);
+		int step = vertical ? BOARD_SIZE_X : 1;
+		long cell = cellIndex(coordX, coordY);
+		for (int i = 0; i < length; i++, cell += step) {
+			CELLS.setShip(cell, shipNumber);
 		}
+		remainingCells += length;
 
-		return noOverlap;
-	}
-
-	// Pass a list of integers and check if they are all the same number
-	boolean isAllTheSame(List<Integer> list) {
-		int expectedValue = list.get(0);
-		for (int value : list) {
-			if (value != expectedValue) {
-				return false;
-			}
-		}
 		return true;
 	}
 
-	// Pass a list of integers and a maximum bound
-	// check if they are all non-negative and below the maximum bound
-	boolean isInbound(List<Integer> list, int minimum, int maximum) {
-		for (int value : list) {
-			if (value > maximum || value < minimum) {
-				return false;
-			}
+	// Take a ship off the map again, so that the random generator can backtrack
+	void removeShipFromMap(int shipNumber) {
+
+		Ship ship = FLEET[shipNumber - 1];
+		int length = ship.getShipType().getLength();
+		int step = ship.isVertical() ? BOARD_SIZE_X : 1;
+		long cell = cellIndex(ship.getOriginX(), ship.getOriginY());
+		for (int i = 0; i < length; i++, cell += step) {
+			CELLS.setShip(cell, 0);
 		}
-		return true;
+		remainingCells -= length;
+		FLEET[shipNumber - 1] = null;
 	}
 
-	// Pass a list of integers, sort and check if they are consecutive
-	boolean isConsecutive(List<Integer> list) {
-		Collections.sort(list);
-		int expectedValue = list.get(0);
-		for (int value : list) {
-			if (value != expectedValue) {
-				return false;
-			}
-			expectedValue++;
+	// Packed bitsets while the board is small enough, hash tables of ship and shot coordinates
+	// beyond that (or with more ships than a short can number)
+	static CellStore newCellStore(int sizeX, int sizeY, int noOfShips) {
+		long cells = (long) sizeX * sizeY;
+		if (cells <= MAX_DENSE_CELLS && noOfShips <= Short.MAX_VALUE) {
+			return new DenseCellStore((int) cells);
 		}
-		return true;
+		return new SparseCellStore(noOfShips * ShipType.CARRIER.getLength());
 	}
 
-	// Pass a ship type and its supposed coordinates, check if it is a valid ship
-	boolean isValidShip (ShipType type, ArrayList<ArrayList<Integer>> coordinates) {
-
-		List<Integer> coordX = new ArrayList<>();
-		List<Integer> coordY = new ArrayList<>();
+	// Convert a coordinate to its position in the cell store, row by row
+	long cellIndex(int coordX, int coordY) {
+		return (long) coordY * BOARD_SIZE_X + coordX;
+	}
 
-		for (ArrayList<Integer> coordinate : coordinates) {
-			coordY.add(coordinate.get(0));
-			coordX.add(coordinate.get(1));
+	// The ship placement of this board, e.g. to save or replay it
+	public Layout getLayout() {
+		ShipType[] types = new ShipType[NO_OF_SHIPS];
+		int[] originX = new int[NO_OF_SHIPS];
+		int[] originY = new int[NO_OF_SHIPS];
+		boolean[] vertical = new boolean[NO_OF_SHIPS];
+		for (int i = 0; i < NO_OF_SHIPS; i++) {
+			types[i] = FLEET[i].getShipType();
+			originX[i] = FLEET[i].getOriginX();
+			originY[i] = FLEET[i].getOriginY();
+			vertical[i] = FLEET[i].isVertical();
 		}
-
-		if(isInbound(coordX, 0, BOARD_SIZE_X - 1) && isInbound(coordY, 0, BOARD_SIZE_Y - 1)) {
-			if (isAllTheSame(coordX)) { // A vertical ship
-				if (coordY.size() == type.getLength() && isConsecutive(coordY)) {
-					return true;
-				}
-			}
-			if (isAllTheSame(coordY)) { // A horizontal ship
-				if (coordX.size() == type.getLength() && isConsecutive(coordX)) {
-					return true;
-				}
-			}
-		}
-
-		return false;
+		return new Layout(BOARD_SIZE_X, BOARD_SIZE_Y, types, originX, originY, vertical);
 	}
 
 	public int getNumberOfShips() {
 		return NO_OF_SHIPS;
 	}
 
+	// Number of placement tests the random generator took; 0 if the board was read from a file
+	public long getPlacementAttempts() {
+		return placementAttempts;
+	}
+
+	// Worst-case number of placement tests for a random board of this size, to alert on
+	public static long maxPlacementAttempts(int sizeX, int sizeY) {
+		return ShipPlacer.maxAttempts(sizeX, sizeY, (sizeX + sizeY) / 4);
+	}
+
 	public int getBoardSizeX() {
 		return BOARD_SIZE_X;
 	}
@@ -297,27 +231,87 @@ public class Board {
 	}
 
 	public Ship getShip(int coordX, int coordY) {
-		return SHIP_MAP[coordY][coordX];
+		int shipNumber = CELLS.shipAt(cellIndex(coordX, coordY));
+		return shipNumber == 0 ? null : FLEET[shipNumber - 1];
+	}
+
+	// Whether the coordinate has been hit before
+	public boolean isShot(int coordX, int coordY) {
+		return CELLS.isShot(cellIndex(coordX, coordY));
 	}
 
-	// Change the hitMap and call hit() of the ship object
+	// Mark the coordinate as shot and hit the part of the ship on it; see fire()
 	public void hit (int coordX, int coordY) {
-		if (SHIP_MAP[coordY][coordX] != null) {
-			HIT_MAP[coordY][coordX] = true;
-			SHIP_MAP[coordY][coordX].hit();
-		}
+		fire(coordX, coordY);
 	}
 
-	// Evaluate if all ships are sunk
-	public boolean allHit() {
-		boolean b = true;
-		for (boolean[] rows : HIT_MAP) {
-			for (boolean value : rows) {
-				if (value == false) {
-					b = false;
+	// Mark the coordinate as shot and hit the part of the ship on it, if any. Returns a packed
+	// ShotResult with the outcome and the type of the ship on the coordinate, for player 0 and
+	// no score. A coordinate shot before is ALREADY_SHOT and changes nothing. Throws
+	// IllegalArgumentException for a coordinate off the board.
+	public int fire(int coordX, int coordY) {
+		if (coordX < 0 || coordX >= BOARD_SIZE_X || coordY < 0 || coordY >= BOARD_SIZE_Y) {
+			throw new IllegalArgumentException("Coordinate (" + coordX + ", " + coordY + ") is off the "
+					+ BOARD_SIZE_X + "x" + BOARD_SIZE_Y + " board.");
+		}
+		ShotEvent event = new ShotEvent();
+		event.begin();
+
+		long cell = cellIndex(coordX, coordY);
+		int shipNumber = CELLS.shipAt(cell);
+		boolean alreadyShot = CELLS.isShot(cell);
+		Ship ship = shipNumber == 0 ? null : FLEET[shipNumber - 1];
+		int outcome = ShotResult.MISS;
+		if (alreadyShot) {
+			outcome = ShotResult.ALREADY_SHOT;
+		} else {
+			CELLS.markShot(cell);
+			if (ship != null) {
+				// One of the distances from the origin is 0
+				ship.hit(coordX - ship.getOriginX() + coordY - ship.getOriginY());
+				remainingCells--;
+				if (remainingCells == 0) {
+					outcome = ShotResult.GAME_OVER;
+				} else {
+					outcome = ship.isDown() == 2 ? ShotResult.SUNK : ShotResult.HIT;
 				}
 			}
 		}
-		return b;
+
+		if (event.shouldCommit()) {
+			commit(event, coordX, coordY, shipNumber, alreadyShot);
+		}
+		return ShotResult.of(outcome, ship == null ? null : ship.getShipType(), 0, 0);
+	}
+
+	// Kept out of fire(), so that fire() stays small enough to be inlined
+	private void commit(ShotEvent event, int coordX, int coordY, int shipNumber, boolean alreadyShot) {
+		event.coordX = coordX;
+		event.coordY = coordY;
+		event.shipNumber = shipNumber;
+		event.alreadyShot = alreadyShot;
+		event.sunk = shipNumber != 0 && !alreadyShot && FLEET[shipNumber - 1].isDown() == 2;
+		event.commit();
+	}
+
+	// Every coordinate shot so far, numbered row by row (y * width + x), in increasing order
+	public long[] getShotCells() {
+		return CELLS.shotCells();
+	}
+
+	// Number of ships not sunk yet
+	public int getNumberOfShipsLeft() {
+		int left = 0;
+		for (Ship ship : FLEET) {
+			if (ship.isDown() != 2) {
+				left++;
+			}
+		}
+		return left;
+	}
+
+	// Evaluate if all ships are sunk
+	public boolean allHit() {
+		return remainingCells == 0;
 	}
 }
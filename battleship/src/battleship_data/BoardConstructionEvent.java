@@ -0,0 +1,42 @@
+/*
+ * Name: BoardConstructionEvent.java
+ * Description: A Java Flight Recorder event for building a board, randomly or from a layout,
+ * with the time it took. Like the other battleship events it is disabled unless a recording
+ * enables it (see battleship.jfc), and then costs next to nothing.
+ */
+
+package battleship_data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("battleship.BoardConstruction")
+@Label("Board Construction")
+@Category("Battleship")
+@Description("A board was built and its ships placed")
+@Enabled(false)
+@StackTrace(false)
+final class BoardConstructionEvent extends Event {
+
+	@Label("Width")
+	int sizeX;
+
+	@Label("Height")
+	int sizeY;
+
+	@Label("Ships")
+	int ships;
+
+	@Label("Random")
+	@Description("Ships placed by the random generator, not from a layout")
+	boolean random;
+
+	@Label("Placement Attempts")
+	@Description("Placements the random generator tried; 0 for a layout")
+	long placementAttempts;
+}
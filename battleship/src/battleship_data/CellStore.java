@@ -0,0 +1,29 @@
+/*
+ * Name: CellStore.java
+ * Description: Where a board keeps which ship is on each coordinate and which coordinates
+ * have been hit. Coordinates are numbered row by row (y * width + x) as longs, so that
+ * boards larger than 2^31 coordinates can be numbered too.
+ * Small boards use packed bitsets (DenseCellStore); large boards only store the coordinates
+ * of ships and shots (SparseCellStore), so their memory grows with the fleet, not the area.
+ */
+
+package battleship_data;
+
+interface CellStore {
+
+	// Ship number on the coordinate, 0 if there is no ship
+	int shipAt(long cell);
+
+	// Put a ship number on the coordinate; 0 takes the ship off
+	void setShip(long cell, int shipNumber);
+
+	// True if none of the coordinates cell, cell + step, ... (length of them) has a ship on it
+	boolean isFree(long cell, long step, int length);
+
+	boolean isShot(long cell);
+
+	void markShot(long cell);
+
+	// Every coordinate that has been shot, in increasing order
+	long[] shotCells();
+}
@@ -0,0 +1,107 @@
+/*
+ * Name: DenseCellStore.java
+ * Description: Cell store for boards of limited area: one bit per coordinate for "occupied"
+ * and "shot", and a short ship number per coordinate. A horizontal run of coordinates covers
+ * consecutive bits, so checking that it is free is a test of one or two words.
+ */
+
+package battleship_data;
+
+class DenseCellStore implements CellStore {
+
+	private final long[] OCCUPIED; // one bit per coordinate; set if a ship is on it
+	private final long[] SHOT; // one bit per coordinate; set once the coordinate has been hit
+	private final short[] SHIP_INDEX; // ship number on each coordinate; 0 means no ship
+
+	DenseCellStore(int cells) {
+		OCCUPIED = new long[wordsFor(cells)];
+		SHOT = new long[OCCUPIED.length];
+		SHIP_INDEX = new short[cells];
+	}
+
+	// Number of 64-bit words needed to hold one bit per coordinate
+	static int wordsFor(int cells) {
+		return (cells + 63) >>> 6;
+	}
+
+	static boolean isSet(long[] bits, int index) {
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	static void set(long[] bits, int index) {
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	static void clear(long[] bits, int index) {
+		bits[index >>> 6] &= ~(1L << index);
+	}
+
+	@Override
+	public int shipAt(long cell) {
+		return SHIP_INDEX[(int) cell];
+	}
+
+	@Override
+	public void setShip(long cell, int shipNumber) {
+		int index = (int) cell;
+		SHIP_INDEX[index] = (short) shipNumber;
+		if (shipNumber == 0) {
+			clear(OCCUPIED, index);
+		} else {
+			set(OCCUPIED, index);
+		}
+	}
+
+	@Override
+	public boolean isFree(long cell, long step, int length) {
+		int first = (int) cell;
+		if (step != 1) {
+			for (int i = 0; i < length; i++, first += step) {
+				if (isSet(OCCUPIED, first)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		int last = first + length - 1;
+		long firstMask = -1L << first;
+		long lastMask = -1L >>> (63 - (last & 63));
+		int firstWord = first >>> 6;
+		int lastWord = last >>> 6;
+		if (firstWord == lastWord) {
+			return (OCCUPIED[firstWord] & firstMask & lastMask) == 0;
+		}
+		for (int word = firstWord + 1; word < lastWord; word++) {
+			if (OCCUPIED[word] != 0) {
+				return false;
+			}
+		}
+		return (OCCUPIED[firstWord] & firstMask) == 0 && (OCCUPIED[lastWord] & lastMask) == 0;
+	}
+
+	@Override
+	public boolean isShot(long cell) {
+		return isSet(SHOT, (int) cell);
+	}
+
+	@Override
+	public void markShot(long cell) {
+		set(SHOT, (int) cell);
+	}
+
+	@Override
+	public long[] shotCells() {
+		int count = 0;
+		for (long word : SHOT) {
+			count += Long.bitCount(word);
+		}
+		long[] cells = new long[count];
+		int n = 0;
+		for (int w = 0; w < SHOT.length; w++) {
+			for (long word = SHOT[w]; word != 0; word &= word - 1) {
+				cells[n++] = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+			}
+		}
+		return cells;
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Name: GameEngine.java
+ * Description: Run a game on a board without any window, for two players or as many as its
+ * ScoreBoard has.
+ * It takes the shots of the players in turn, scores them (2x bonus when a ship is sunk,
+ * plus the player bonus if chosen, for every player but the first to fire), counts the
+ * ships left and detects the end of the game.
+ * Windows, bots and simulations drive the game through fire() and render the results.
+ * With a journal set, the game and each of its shots are also recorded in a MoveJournal.
+ * A game saved in a GameSnapshot continues on the engine GameSnapshot.restore() builds.
+ */
+
+package battleship_data;
+
+public class GameEngine {
+
+	private final Board BOARD;
+	private final ScoreBoard SCOREBOARD;
+	private final int PLAYER_BONUS; // Add to players after player 1 if they hit a ship; either 0 or 5
+
+	private boolean bGameOver;
+	private int noOfShipsLeft;
+	private int playerNo; // From 1 to the number of players; the next one each round
+	private MoveJournal journal; // Records the shots; null if not recorded
+	private long gameId; // Id of this game in the journal
+
+	// The classic game of player 1 against player 2
+	public GameEngine(Board board, int playerBonus) {
+		this(board, playerBonus, new ScoreBoard());
+	}
+
+	// A game for the players of a new score board, who fire in the order of their numbers
+	public GameEngine(Board board, int playerBonus, ScoreBoard scoreBoard) {
+		this.BOARD = board;
+		this.SCOREBOARD = scoreBoard;
+		this.PLAYER_BONUS = playerBonus;
+		this.bGameOver = board.allHit();
+		this.noOfShipsLeft = board.getNumberOfShipsLeft();
+		this.playerNo = 1;
+	}
+
+	// Continue a saved game: whose turn it is and the scores so far; the board holds the shots
+	void restore(int currentPlayer, int[] scores) {
+		for (int player = 1; player <= scores.length; player++) {
+			SCOREBOARD.addScoreToPlayer(scores[player - 1], player);
+		}
+		this.playerNo = currentPlayer;
+	}
+
+	// Record this game in a journal, and every shot from now on
+	public void setJournal(MoveJournal journal, long gameId) {
+		this.journal = journal;
+		this.gameId = gameId;
+		journal.startGame(gameId, BOARD, PLAYER_BONUS);
+	}
+
+	// Record the shots of a restored game in a journal that already holds its start
+	public void continueJournal(MoveJournal journal, long gameId) {
+		this.journal = journal;
+		this.gameId = gameId;
+	}
+
+	// Let the current player fire at a coordinate. Returns the packed ShotResult with the
+	// score added to the player. Firing at a coordinate that was already hit changes nothing,
+	// not even the turn.
+	public int fire(int coordX, int coordY) {
+		int result = shoot(coordX, coordY);
+		if (journal != null) {
+			journal.recordShot(gameId, coordX, coordY, result);
+		}
+		return result;
+	}
+
+	private int shoot(int coordX, int coordY) {
+
+		if (bGameOver) {
+			throw new IllegalStateException("The game is over.");
+		}
+
+		int shooter = playerNo;
+		int shot = BOARD.fire(coordX, coordY);
+		int outcome = ShotResult.outcome(shot);
+		if (outcome == ShotResult.ALREADY_SHOT) {
+			return ShotResult.of(ShotResult.ALREADY_SHOT, null, shooter, 0);
+		}
+
+		ShipType type = ShotResult.shipType(shot);
+		int scoreToAdd = 0;
+
+		// Calculate score, 2x when the ship sinks; second player advantage is 0 or 5 depending
+		// on user selection
+		if (type != null) {
+			boolean sunk = ShotResult.isSunk(shot);
+			scoreToAdd = type.getScore() * (sunk ? 2 : 1);
+			if (shooter != 1) {
+				scoreToAdd += PLAYER_BONUS;
+			}
+			if (sunk) {
+				noOfShipsLeft--;
+			}
+		}
+
+		SCOREBOARD.addScoreToPlayer(scoreToAdd, shooter);
+
+		bGameOver = outcome == ShotResult.GAME_OVER;
+
+		changePlayer();
+		return ShotResult.of(outcome, type, shooter, scoreToAdd);
+	}
+
+	void changePlayer() {
+		playerNo = playerNo % SCOREBOARD.getNumberOfPlayers() + 1;
+	}
+
+	public Board getBoard() {
+		return BOARD;
+	}
+
+	public ScoreBoard getScoreBoard() {
+		return SCOREBOARD;
+	}
+
+	public int getPlayerBonus() {
+		return PLAYER_BONUS;
+	}
+
+	// The player whose turn it is
+	public int getCurrentPlayer() {
+		return playerNo;
+	}
+
+	public int getNumberOfShipsLeft() {
+		return noOfShipsLeft;
+	}
+
+	// Id of this game in the journal; 0 if not recorded
+	public long getGameId() {
+		return gameId;
+	}
+
+	public boolean isGameOver() {
+		return bGameOver;
+	}
+}
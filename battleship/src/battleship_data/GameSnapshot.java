@@ -0,0 +1,199 @@
+/*
+ * Name: GameSnapshot.java
+ * Description: The whole state of a game in progress, small enough to be saved after every
+ * move: the layout of the board, the coordinates shot so far, the scores, whose turn it is
+ * and the player 2 bonus. Ships are not saved; their remaining parts follow from the layout
+ * and the shots, and are rebuilt by shooting the board again when the game is restored.
+ *
+ * The encoding is a version byte, then varints: the journal game id, the options of the
+ * window, the bonus, the current player, the number of players, their scores and their
+ * teams, then the layout in the encoding of LayoutCodec and the shot coordinates
+ * (y * width + x) in increasing order, each as the gap from the previous one. A shot mostly
+ * takes one byte. Version 1, from before games had teams, has no teams and two players.
+ */
+
+package battleship_data;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public final class GameSnapshot {
+
+	static final int VERSION = 2;
+	static final int VERSION_WITHOUT_TEAMS = 1; // Still read
+
+	private final long GAME_ID; // Id of the game in the move journal; 0 if not recorded
+	private final int OPTIONS; // Left to the caller, e.g. whether the computer plays
+	private final int PLAYER_BONUS;
+	private final int CURRENT_PLAYER;
+	private final int[] SCORES; // [0] is player 1 score
+	private final int[] TEAMS; // [0] is the team of player 1
+	private final Layout LAYOUT;
+	private final long[] SHOT_CELLS; // Increasing
+
+	// Take a snapshot of the game as it is now
+	public GameSnapshot(GameEngine engine, int options) {
+		this(engine.getGameId(), options, engine.getPlayerBonus(), engine.getCurrentPlayer(),
+				engine.getScoreBoard().getScores(), teamsOf(engine.getScoreBoard()), engine.getBoard().getLayout(),
+				engine.getBoard().getShotCells());
+	}
+
+	private GameSnapshot(long gameId, int options, int playerBonus, int currentPlayer, int[] scores, int[] teams,
+			Layout layout, long[] shotCells) {
+		this.GAME_ID = gameId;
+		this.OPTIONS = options;
+		this.PLAYER_BONUS = playerBonus;
+		this.CURRENT_PLAYER = currentPlayer;
+		this.SCORES = scores;
+		this.TEAMS = teams;
+		this.LAYOUT = layout;
+		this.SHOT_CELLS = shotCells;
+	}
+
+	private static int[] teamsOf(ScoreBoard scoreBoard) {
+		int[] teams = new int[scoreBoard.getNumberOfPlayers()];
+		for (int player = 1; player <= teams.length; player++) {
+			teams[player - 1] = scoreBoard.getTeam(player);
+		}
+		return teams;
+	}
+
+	// A new engine and board in the state of the snapshot. The engine records nothing yet.
+	public GameEngine restore() {
+		Board board = new Board(LAYOUT);
+		int sizeX = board.getBoardSizeX();
+		for (long cell : SHOT_CELLS) {
+			board.hit((int) (cell % sizeX), (int) (cell / sizeX));
+		}
+		GameEngine engine = new GameEngine(board, PLAYER_BONUS, new ScoreBoard(TEAMS));
+		engine.restore(CURRENT_PLAYER, SCORES);
+		return engine;
+	}
+
+	// Bytes writeTo() needs at most
+	public long maxSize() {
+		return 1 + MoveJournal.MAX_VARLONG_BYTES + (4 + 2L * SCORES.length) * LayoutCodec.MAX_VARINT_BYTES
+				+ LayoutCodec.encodedSize(LAYOUT) + (1L + SHOT_CELLS.length) * MoveJournal.MAX_VARLONG_BYTES;
+	}
+
+	// Write the snapshot at the position of the buffer, which must have maxSize() bytes left
+	public void writeTo(ByteBuffer out) {
+		out.put((byte) VERSION);
+		MoveJournal.writeVarLong(out, GAME_ID);
+		LayoutCodec.writeVarint(out, OPTIONS);
+		LayoutCodec.writeVarint(out, PLAYER_BONUS);
+		LayoutCodec.writeVarint(out, CURRENT_PLAYER);
+		LayoutCodec.writeVarint(out, SCORES.length);
+		for (int score : SCORES) {
+			LayoutCodec.writeVarint(out, score);
+		}
+		for (int team : TEAMS) {
+			LayoutCodec.writeVarint(out, team);
+		}
+		LayoutCodec.encode(LAYOUT, out);
+		MoveJournal.writeVarLong(out, SHOT_CELLS.length);
+		long previous = -1;
+		for (long cell : SHOT_CELLS) {
+			MoveJournal.writeVarLong(out, cell - previous - 1);
+			previous = cell;
+		}
+	}
+
+	public byte[] toBytes() {
+		ByteBuffer out = ByteBuffer.allocate(Math.toIntExact(maxSize()));
+		writeTo(out);
+		return Arrays.copyOf(out.array(), out.position());
+	}
+
+	public static GameSnapshot read(byte[] bytes) {
+		return read(ByteBuffer.wrap(bytes));
+	}
+
+	// Read a snapshot from the position of the buffer. Throws IllegalArgumentException if it
+	// is damaged or does not describe a game that can be played on.
+	public static GameSnapshot read(ByteBuffer in) {
+		try {
+			int version = in.get();
+			if (version != VERSION && version != VERSION_WITHOUT_TEAMS) {
+				throw new IllegalArgumentException("Unsupported game snapshot version " + version + ".");
+			}
+			long gameId = JournalReader.readVarLong(in);
+			int options = LayoutCodec.readVarint(in);
+			int playerBonus = LayoutCodec.readVarint(in);
+			int currentPlayer = LayoutCodec.readVarint(in);
+			int players = LayoutCodec.readVarint(in);
+			// Every player takes at least two bytes; a larger count is corrupt and must not be allocated
+			if (players < 1 || players > in.remaining() / 2 || currentPlayer < 1 || currentPlayer > players
+					|| (version == VERSION_WITHOUT_TEAMS && players != 2)) {
+				throw new IllegalArgumentException("Invalid players in game snapshot.");
+			}
+			int[] scores = new int[players];
+			for (int i = 0; i < players; i++) {
+				scores[i] = LayoutCodec.readVarint(in);
+			}
+			int[] teams = new int[players];
+			for (int i = 0; i < players; i++) {
+				teams[i] = version == VERSION_WITHOUT_TEAMS ? i + 1 : LayoutCodec.readVarint(in);
+			}
+			ScoreBoard.countTeams(teams);
+			Layout layout = LayoutCodec.decode(in);
+
+			// Every shot takes at least a byte; a larger count is corrupt and must not be allocated
+			long noOfShots = JournalReader.readVarLong(in);
+			long cells = (long) layout.getBoardSizeX() * layout.getBoardSizeY();
+			if (noOfShots < 0 || noOfShots > in.remaining() || noOfShots > cells) {
+				throw new IllegalArgumentException("Invalid number of shots " + noOfShots + " in game snapshot.");
+			}
+			long[] shotCells = new long[(int) noOfShots];
+			long previous = -1;
+			for (int i = 0; i < shotCells.length; i++) {
+				long gap = JournalReader.readVarLong(in);
+				if (gap < 0 || gap >= cells - previous - 1) {
+					throw new IllegalArgumentException("Shot outside the board in game snapshot.");
+				}
+				previous += gap + 1;
+				shotCells[i] = previous;
+			}
+			return new GameSnapshot(gameId, options, playerBonus, currentPlayer, scores, teams, layout, shotCells);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Game snapshot is cut off.", e);
+		}
+	}
+
+	public long getGameId() {
+		return GAME_ID;
+	}
+
+	public int getOptions() {
+		return OPTIONS;
+	}
+
+	public int getPlayerBonus() {
+		return PLAYER_BONUS;
+	}
+
+	public int getCurrentPlayer() {
+		return CURRENT_PLAYER;
+	}
+
+	public int getNumberOfPlayers() {
+		return SCORES.length;
+	}
+
+	public int getScore(int player) {
+		return SCORES[player - 1];
+	}
+
+	public int getTeam(int player) {
+		return TEAMS[player - 1];
+	}
+
+	public Layout getLayout() {
+		return LAYOUT;
+	}
+
+	public int getNumberOfShots() {
+		return SHOT_CELLS.length;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * Name: HighscoreEvent.java
+ * Description: A Java Flight Recorder event for adding a game to the high scores or resetting
+ * them, with the bytes written to the log and the table and the time it took, lock wait
+ * included. Disabled unless a recording enables it (see battleship.jfc).
+ */
+
+package battleship_data;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("battleship.Highscore")
+@Label("Highscore Update")
+@Category("Battleship")
+@Description("The scores of a game were recorded, or the high scores reset")
+@Enabled(false)
+final class HighscoreEvent extends Event {
+
+	@Label("Operation")
+	@Description("record or reset")
+	String operation;
+
+	@Label("Bytes Written")
+	@DataAmount
+	long bytes;
+
+	@Label("Failed")
+	boolean failed;
+}
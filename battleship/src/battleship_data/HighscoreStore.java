@@ -0,0 +1,325 @@
+/*
+ * Name: HighscoreStore.java
+ * Description: Keep the high score table crash-safe and cheap to update.
+ * Every finished game appends its scores to a log, one "player<TAB>score" line each, and
+ * the best scores are kept in memory in a heap bounded to the size of the table. The table
+ * file that the windows show is then published by writing a temporary file and renaming it
+ * over the old one, so it is always either the old or the new table, never half written.
+ *
+ * All file work happens under a lock on a lock file, so that several running games can share
+ * the files: each reads the log records the others appended since its last visit before
+ * adding its own. A line without its line break was cut off by a crash and is dropped. Once
+ * the log holds many more records than the table, it is compacted to the table entries.
+ */
+
+package battleship_data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+public class HighscoreStore {
+
+	public static final int TABLE_SIZE = 10; // Entries in the published table
+	static final int COMPACT_AFTER = 1000; // Log records beyond the table that trigger a compaction
+	static final String EMPTY_PLAYER = "N\\A"; // Fills the table while there are fewer scores
+
+	// Lowest score first, and of equal scores the newest first, so the root is the one to drop
+	private static final Comparator<Entry> WORST_FIRST = Comparator.comparingInt(Entry::getScore)
+			.thenComparing(Comparator.comparingLong((Entry entry) -> entry.SEQUENCE).reversed());
+
+	private static HighscoreStore defaultStore;
+
+	private final Path TABLE; // The published table, e.g. highscores.txt
+	private final Path LOG; // Scores of every game, appended
+	private final Path LOCK; // Locked while any of the files is read or written
+
+	private final PriorityQueue<Entry> TOP = new PriorityQueue<>(TABLE_SIZE + 1, WORST_FIRST);
+	private Object logKey; // Identity of the log file read so far; a compaction replaces the file
+	private long logOffset; // Bytes of the log read so far
+	private long logRecords; // Records in the log read so far
+	private long nextSequence; // Order of the records, to rank equal scores
+
+	public HighscoreStore(Path table, Path log, Path lock) {
+		this.TABLE = table;
+		this.LOG = log;
+		this.LOCK = lock;
+	}
+
+	// The store of highscores.txt in the working directory, shared by the whole game
+	public static synchronized HighscoreStore getDefault() {
+		if (defaultStore == null) {
+			defaultStore = new HighscoreStore(Paths.get("highscores.txt"), Paths.get("highscores.log"),
+					Paths.get("highscores.lock"));
+		}
+		return defaultStore;
+	}
+
+	// Append the scores of a finished game and publish the table if they changed it.
+	// Returns the number of bytes written.
+	public synchronized long record(String[] players, int[] scores) throws IOException {
+		FileChannel lock = lock();
+		try (FileChannel log = openLog()) {
+			sync(log);
+
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < players.length; i++) {
+				sb.append(clean(players[i])).append('\t').append(scores[i]).append('\n');
+			}
+			ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+			long written = bytes.remaining();
+			while (bytes.hasRemaining()) {
+				logOffset += log.write(bytes, logOffset);
+			}
+			log.force(false);
+
+			boolean changed = false;
+			for (int i = 0; i < players.length; i++) {
+				changed |= offer(clean(players[i]), scores[i]);
+			}
+			logRecords += players.length;
+
+			if (logRecords > TABLE_SIZE + COMPACT_AFTER) {
+				written += compact();
+			}
+			if (changed || !Files.exists(TABLE)) {
+				written += publish();
+			}
+			return written;
+		} finally {
+			lock.close();
+		}
+	}
+
+	// The best scores, best first, at most TABLE_SIZE of them
+	public synchronized List<Entry> getTop() throws IOException {
+		FileChannel lock = lock();
+		try (FileChannel log = openLog()) {
+			sync(log);
+			return sorted();
+		} finally {
+			lock.close();
+		}
+	}
+
+	// Forget every score and publish an empty table. Returns the number of bytes written.
+	public synchronized long reset() throws IOException {
+		FileChannel lock = lock();
+		try {
+			TOP.clear();
+			replace(LOG, "");
+			logKey = fileKey(LOG);
+			logOffset = 0;
+			logRecords = 0;
+			return publish();
+		} finally {
+			lock.close();
+		}
+	}
+
+	// Open the lock file and wait for its lock, which is released when the channel is closed
+	private FileChannel lock() throws IOException {
+		FileChannel channel = FileChannel.open(LOCK, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		try {
+			channel.lock();
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		return channel;
+	}
+
+	private FileChannel openLog() throws IOException {
+		return FileChannel.open(LOG, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	// Catch up with the log: read what was appended since the last visit, or all of it if the
+	// file was replaced (or the file system cannot tell files apart). Called with the lock held.
+	private void sync(FileChannel log) throws IOException {
+		Object key = fileKey(LOG);
+		long size = log.size();
+		if (key == null || !Objects.equals(key, logKey) || size < logOffset) {
+			TOP.clear();
+			logKey = key;
+			logOffset = 0;
+			logRecords = 0;
+		}
+
+		// An empty log next to a table from before the log existed: keep the old entries
+		if (size == 0 && logRecords == 0 && Files.exists(TABLE)) {
+			importTable(log);
+			size = log.size();
+		}
+
+		if (size == logOffset) {
+			return;
+		}
+		ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(size - logOffset, Integer.MAX_VALUE - 8));
+		while (bytes.hasRemaining() && log.read(bytes, logOffset + bytes.position()) >= 0) {
+			// Read until full
+		}
+		byte[] data = bytes.array();
+		int lineStart = 0;
+		for (int i = 0; i < bytes.position(); i++) {
+			if (data[i] == '\n') {
+				parseRecord(new String(data, lineStart, i - lineStart, StandardCharsets.UTF_8));
+				lineStart = i + 1;
+			}
+		}
+		logOffset += lineStart;
+
+		// A record cut off by a crash; drop it so the next record starts on its own line
+		if (logOffset < size) {
+			log.truncate(logOffset);
+		}
+	}
+
+	private void parseRecord(String line) {
+		logRecords++;
+		int tab = line.lastIndexOf('\t');
+		if (tab < 0) {
+			return;
+		}
+		try {
+			offer(line.substring(0, tab), Integer.parseInt(line.substring(tab + 1)));
+		} catch (NumberFormatException e) {
+			// A damaged record; skip it
+		}
+	}
+
+	// Seed an empty log with the rows of an existing table ("No<TAB>Player<TAB>Score" lines)
+	private void importTable(FileChannel log) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		List<String> lines = Files.readAllLines(TABLE, StandardCharsets.UTF_8);
+		for (int i = 1; i < lines.size(); i++) {
+			String[] items = lines.get(i).split("\t");
+			if (items.length == 3 && !items[1].equals(EMPTY_PLAYER) && items[2].matches("-?\\d{1,9}")) {
+				sb.append(items[1]).append('\t').append(items[2]).append('\n');
+			}
+		}
+		ByteBuffer bytes = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+		long position = 0;
+		while (bytes.hasRemaining()) {
+			position += log.write(bytes, position);
+		}
+		log.force(false);
+	}
+
+	// Add a score to the bounded heap. Returns true if it made it into the table.
+	private boolean offer(String player, int score) {
+		Entry entry = new Entry(player, score, nextSequence++);
+		if (TOP.size() == TABLE_SIZE && WORST_FIRST.compare(entry, TOP.peek()) <= 0) {
+			return false;
+		}
+		TOP.add(entry);
+		if (TOP.size() > TABLE_SIZE) {
+			TOP.poll();
+		}
+		return true;
+	}
+
+	private List<Entry> sorted() {
+		List<Entry> entries = new ArrayList<>(TOP);
+		entries.sort(WORST_FIRST.reversed());
+		return entries;
+	}
+
+	// Rewrite the log with the table entries only, oldest first so that ties keep their order
+	private long compact() throws IOException {
+		List<Entry> entries = new ArrayList<>(TOP);
+		entries.sort(Comparator.comparingLong((Entry entry) -> entry.SEQUENCE));
+		StringBuilder sb = new StringBuilder();
+		for (Entry entry : entries) {
+			sb.append(entry.PLAYER).append('\t').append(entry.SCORE).append('\n');
+		}
+		long written = replace(LOG, sb.toString());
+		logKey = fileKey(LOG);
+		logOffset = Files.size(LOG);
+		logRecords = entries.size();
+		return written;
+	}
+
+	// Write the table in the format of highscores.txt, padded to TABLE_SIZE rows
+	private long publish() throws IOException {
+		return replace(TABLE, formatTable(sorted()));
+	}
+
+	static String formatTable(List<Entry> entries) {
+		StringBuilder sb = new StringBuilder("No\tPlayer\tScore" + System.lineSeparator());
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			String player = i < entries.size() ? entries.get(i).PLAYER : EMPTY_PLAYER;
+			int score = i < entries.size() ? entries.get(i).SCORE : 0;
+			sb.append(i + 1).append('\t').append(player).append('\t').append(score).append(System.lineSeparator());
+		}
+		return sb.toString();
+	}
+
+	// Write to a temporary file next to the target, flush it to disk and rename it over the target.
+	// Returns the size of the file.
+	static long replace(Path target, String content) throws IOException {
+		Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+		ByteBuffer bytes = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			channel.force(true);
+		}
+		try {
+			Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return bytes.capacity();
+	}
+
+	private static Object fileKey(Path path) throws IOException {
+		return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+	}
+
+	// Tabs and line breaks would break the log and the table
+	private static String clean(String player) {
+		return player.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+	}
+
+	// One row of the table
+	public static final class Entry {
+
+		private final String PLAYER;
+		private final int SCORE;
+		private final long SEQUENCE; // Position in the log; earlier entries win ties
+
+		Entry(String player, int score, long sequence) {
+			this.PLAYER = player;
+			this.SCORE = score;
+			this.SEQUENCE = sequence;
+		}
+
+		public String getPlayer() {
+			return PLAYER;
+		}
+
+		public int getScore() {
+			return SCORE;
+		}
+
+		@Override
+		public String toString() {
+			return PLAYER + "\t" + SCORE;
+		}
+	}
+}
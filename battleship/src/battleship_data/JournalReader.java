@@ -0,0 +1,132 @@
+/*
+ * Name: JournalReader.java
+ * Description: Decode a move journal written by MoveJournal, record by record, and pass
+ * every game and shot to a visitor. Reading stops at the end of the data or at the first
+ * record that is cut off or damaged; everything before it is still delivered.
+ */
+
+package battleship_data;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public final class JournalReader {
+
+	private static final ShipType[] TYPES = ShipType.values();
+
+	public interface Visitor {
+
+		// A game started on a board with this layout
+		void game(long gameId, int playerBonus, Layout layout);
+
+		// A shot in a game, with the packed ShotResult it had
+		void shot(long gameId, int coordX, int coordY, int result);
+	}
+
+	private JournalReader() {
+	}
+
+	// Map a journal file and read it. Returns the number of bytes of complete records,
+	// header included; less than the file size if the journal ends in a partial record.
+	public static long read(Path file, Visitor visitor) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			return read(map(channel), visitor);
+		}
+	}
+
+	// Read a journal from the position of the buffer to its limit, header included
+	public static long read(ByteBuffer data, Visitor visitor) throws IOException {
+		int start = data.position();
+		if (data.remaining() < MoveJournal.HEADER_SIZE || data.getInt() != MoveJournal.MAGIC) {
+			throw new IOException("Not a move journal.");
+		}
+		int version = data.get();
+		if (version != MoveJournal.VERSION) {
+			throw new IOException("Unsupported move journal version " + version + ".");
+		}
+
+		long currentGame = 0;
+		int lastX = 0;
+		int lastY = 0;
+		int end = data.position(); // End of the last complete record
+		try {
+			while (data.hasRemaining()) {
+				int header = LayoutCodec.readVarint(data);
+				int outcome = header & MoveJournal.CONTROL;
+				if (outcome == MoveJournal.CONTROL) {
+					int kind = header >>> 3;
+					long gameId = readVarLong(data);
+					if (kind == MoveJournal.CONTROL_GAME) {
+						int playerBonus = LayoutCodec.readVarint(data);
+						Layout layout = LayoutCodec.decode(data);
+						visitor.game(gameId, playerBonus, layout);
+					} else if (kind != MoveJournal.CONTROL_SWITCH) {
+						break; // Damaged
+					}
+					currentGame = gameId;
+					lastX = 0;
+					lastY = 0;
+				} else {
+					int type = (header >>> 3) & 7;
+					int player = (header >>> 6) + 1;
+					int coordX = lastX + unzigzag(LayoutCodec.readVarint(data));
+					int coordY = lastY + unzigzag(LayoutCodec.readVarint(data));
+					int score = LayoutCodec.readVarint(data);
+					if (type > TYPES.length) {
+						break; // Damaged
+					}
+					visitor.shot(currentGame, coordX, coordY,
+							ShotResult.of(outcome, type == 0 ? null : TYPES[type - 1], player, score));
+					lastX = coordX;
+					lastY = coordY;
+				}
+				end = data.position();
+			}
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			// Cut off or damaged; stop after the last complete record
+		}
+		return end - start;
+	}
+
+	// The end of the last complete record of a journal file, to append after it
+	static long validEnd(FileChannel channel) throws IOException {
+		return read(map(channel), new Visitor() {
+			@Override
+			public void game(long gameId, int playerBonus, Layout layout) {
+			}
+
+			@Override
+			public void shot(long gameId, int coordX, int coordY, int result) {
+			}
+		});
+	}
+
+	private static MappedByteBuffer map(FileChannel channel) throws IOException {
+		long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Move journal too large to map: " + size + " bytes.");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+
+	static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	static long readVarLong(ByteBuffer in) {
+		long value = 0;
+		for (int i = 0; i < MoveJournal.MAX_VARLONG_BYTES; i++) {
+			int b = in.get();
+			value |= (long) (b & 0x7F) << (7 * i);
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed number in move journal.");
+	}
+}
@@ -0,0 +1,123 @@
+/*
+ * Name: JournalReplay.java
+ * Description: Play a move journal again on fresh boards and check every shot.
+ * Each game in the journal gets a new board from its layout and a GameEngine with its bonus,
+ * and each shot is fired again; a shot whose result differs from the recorded one is a
+ * mismatch. Used for audits and regression checks of the game rules.
+ */
+
+package battleship_data;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public class JournalReplay implements JournalReader.Visitor {
+
+	private final Map<Long, GameEngine> GAMES = new HashMap<>(); // Games not over yet
+
+	private long lastGameId; // The game of the previous shot, so runs of shots skip the map
+	private GameEngine lastEngine;
+
+	private long games;
+	private long finishedGames;
+	private long shots;
+	private long mismatches;
+	private long unknownShots; // Shots of games that were never started in the journal
+	private String firstMismatch; // Description of the first mismatch, null if none
+	private long bytesRead;
+
+	// Replay a whole journal file
+	public static JournalReplay replay(Path file) throws IOException {
+		JournalReplay replay = new JournalReplay();
+		replay.bytesRead = JournalReader.read(file, replay);
+		return replay;
+	}
+
+	@Override
+	public void game(long gameId, int playerBonus, Layout layout) {
+		games++;
+		GameEngine engine;
+		try {
+			engine = new GameEngine(new Board(layout), playerBonus);
+		} catch (IllegalArgumentException e) {
+			mismatch("Game " + gameId + " has an invalid layout: " + e.getMessage());
+			return;
+		}
+		GAMES.put(gameId, engine);
+		lastGameId = gameId;
+		lastEngine = engine;
+	}
+
+	@Override
+	public void shot(long gameId, int coordX, int coordY, int result) {
+		shots++;
+		GameEngine engine = gameId == lastGameId && lastEngine != null ? lastEngine : GAMES.get(gameId);
+		if (engine == null) {
+			unknownShots++;
+			return;
+		}
+		lastGameId = gameId;
+		lastEngine = engine;
+
+		Board board = engine.getBoard();
+		if (coordX < 0 || coordY < 0 || coordX >= board.getBoardSizeX() || coordY >= board.getBoardSizeY()) {
+			mismatch("Game " + gameId + ": shot at " + coordX + "," + coordY + " is off the board.");
+			return;
+		}
+		int replayed = engine.fire(coordX, coordY);
+		if (replayed != result) {
+			mismatch("Game " + gameId + ": shot at " + coordX + "," + coordY + " was "
+					+ ShotResult.toString(result) + ", replayed " + ShotResult.toString(replayed) + ".");
+		}
+		if (engine.isGameOver()) {
+			finishedGames++;
+			GAMES.remove(gameId);
+			lastEngine = null;
+		}
+	}
+
+	private void mismatch(String description) {
+		mismatches++;
+		if (firstMismatch == null) {
+			firstMismatch = description;
+		}
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public long getFinishedGames() {
+		return finishedGames;
+	}
+
+	public long getShots() {
+		return shots;
+	}
+
+	public long getMismatches() {
+		return mismatches;
+	}
+
+	public long getUnknownShots() {
+		return unknownShots;
+	}
+
+	public String getFirstMismatch() {
+		return firstMismatch;
+	}
+
+	// Bytes of complete records read, header included
+	public long getBytesRead() {
+		return bytesRead;
+	}
+
+	@Override
+	public String toString() {
+		return games + " games (" + finishedGames + " finished), " + shots + " shots, " + mismatches
+				+ " mismatches, " + unknownShots + " shots of unknown games"
+				+ (firstMismatch == null ? "" : System.lineSeparator() + "First mismatch: " + firstMismatch);
+	}
+}
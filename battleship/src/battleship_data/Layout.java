@@ -0,0 +1,58 @@
+/*
+ * Name: Layout.java
+ * Description: The ship placement of a board without any game state: the board size and,
+ * for every ship, its type, the coordinate with the smallest x and y, and whether it is
+ * vertical. Layouts are read from layout files and turned into new boards, and can be
+ * taken from an existing board.
+ */
+
+package battleship_data;
+
+public final class Layout {
+
+	private final int BOARD_SIZE_X;
+	private final int BOARD_SIZE_Y;
+	private final ShipType[] TYPES; // TYPES[n - 1] is the type of ship number n
+	private final int[] ORIGIN_X;
+	private final int[] ORIGIN_Y;
+	private final boolean[] VERTICAL;
+
+	// The arrays are owned by the layout from now on
+	Layout(int sizeX, int sizeY, ShipType[] types, int[] originX, int[] originY, boolean[] vertical) {
+		this.BOARD_SIZE_X = sizeX;
+		this.BOARD_SIZE_Y = sizeY;
+		this.TYPES = types;
+		this.ORIGIN_X = originX;
+		this.ORIGIN_Y = originY;
+		this.VERTICAL = vertical;
+	}
+
+	public int getBoardSizeX() {
+		return BOARD_SIZE_X;
+	}
+
+	public int getBoardSizeY() {
+		return BOARD_SIZE_Y;
+	}
+
+	public int getNumberOfShips() {
+		return TYPES.length;
+	}
+
+	// Ship numbers are 1-based, as on the board
+	public ShipType getShipType(int shipNumber) {
+		return TYPES[shipNumber - 1];
+	}
+
+	public int getOriginX(int shipNumber) {
+		return ORIGIN_X[shipNumber - 1];
+	}
+
+	public int getOriginY(int shipNumber) {
+		return ORIGIN_Y[shipNumber - 1];
+	}
+
+	public boolean isVertical(int shipNumber) {
+		return VERTICAL[shipNumber - 1];
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Name: LayoutCache.java
+ * Description: Remember the layouts of recently read layout files, so that a file checked
+ * when it is chosen does not have to be parsed again when the game starts. An entry is
+ * keyed by the path and holds the modification time and length the file had when it was
+ * read; a file changed since then is read again. Invalid files are remembered too, with
+ * their errors. Layouts cannot change, so every game gets a new board from the same layout.
+ */
+
+package battleship_data;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LayoutCache {
+
+	static final int MAX_ENTRIES = 16; // The least recently used file is forgotten beyond this
+
+	private static final LayoutCache DEFAULT = new LayoutCache();
+
+	// Least recently used first; guarded by this
+	private final Map<String, CachedLayout> ENTRIES = new LinkedHashMap<String, CachedLayout>(
+			MAX_ENTRIES, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedLayout> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	public static LayoutCache getDefault() {
+		return DEFAULT;
+	}
+
+	// The layout of the file, parsed again only if the file changed since it was last read.
+	// Throws LayoutException if the file is not a valid layout, as LayoutParser does.
+	public Layout get(File file) throws FileNotFoundException {
+		String key = file.getAbsolutePath();
+		long modified = file.lastModified();
+		long length = file.length();
+
+		CachedLayout entry;
+		synchronized (this) {
+			entry = ENTRIES.get(key);
+		}
+		if (entry == null || entry.MODIFIED != modified || entry.LENGTH != length) {
+			// Parse outside the lock; two threads reading the same new file both parse it
+			entry = read(file, modified, length);
+			synchronized (this) {
+				ENTRIES.put(key, entry);
+			}
+		}
+
+		if (entry.ERROR != null) {
+			throw entry.ERROR;
+		}
+		return entry.LAYOUT;
+	}
+
+	// Forget a file, e.g. after it was deleted
+	public synchronized void remove(File file) {
+		ENTRIES.remove(file.getAbsolutePath());
+	}
+
+	private static CachedLayout read(File file, long modified, long length) throws FileNotFoundException {
+		try {
+			return new CachedLayout(modified, length, LayoutParser.parse(file), null);
+		} catch (LayoutException e) {
+			return new CachedLayout(modified, length, null, e);
+		} catch (FileNotFoundException e) {
+			throw e;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static final class CachedLayout {
+
+		private final long MODIFIED;
+		private final long LENGTH;
+		private final Layout LAYOUT; // null if the file is invalid
+		private final LayoutException ERROR; // null if the file is valid
+
+		CachedLayout(long modified, long length, Layout layout, LayoutException error) {
+			this.MODIFIED = modified;
+			this.LENGTH = length;
+			this.LAYOUT = layout;
+			this.ERROR = error;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Name: LayoutCodec.java
+ * Description: A compact binary encoding of a layout, next to the text format of layout.txt.
+ * A record is the board width, height and number of ships, then for every ship one byte
+ * with its type ordinal and direction followed by the x and y of its origin. All numbers are
+ * unsigned varints (7 bits per byte, high bit set on all but the last byte), so a ship on
+ * a board of up to 127x127 takes 3 bytes.
+ * toText() writes a layout in the text format instead, as LayoutParser reads it.
+ */
+
+package battleship_data;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+public final class LayoutCodec {
+
+	static final int VERTICAL_BIT = 0x4; // Set in the ship byte of vertical ships; below it the type ordinal
+	static final int MAX_VARINT_BYTES = 5;
+	static final String LINE_BREAK = "\r\n"; // As in the layout files shipped with the game
+
+	private static final ShipType[] TYPES = ShipType.values();
+
+	private LayoutCodec() {
+	}
+
+	// Number of bytes encode() writes for the layout
+	public static int encodedSize(Layout layout) {
+		int size = varintSize(layout.getBoardSizeX()) + varintSize(layout.getBoardSizeY())
+				+ varintSize(layout.getNumberOfShips());
+		for (int n = 1; n <= layout.getNumberOfShips(); n++) {
+			size += 1 + varintSize(layout.getOriginX(n)) + varintSize(layout.getOriginY(n));
+		}
+		return size;
+	}
+
+	public static byte[] encode(Layout layout) {
+		ByteBuffer out = ByteBuffer.allocate(encodedSize(layout));
+		encode(layout, out);
+		return out.array();
+	}
+
+	// Write the record at the position of the buffer, which must have encodedSize() bytes left
+	public static void encode(Layout layout, ByteBuffer out) {
+		writeVarint(out, layout.getBoardSizeX());
+		writeVarint(out, layout.getBoardSizeY());
+		writeVarint(out, layout.getNumberOfShips());
+		for (int n = 1; n <= layout.getNumberOfShips(); n++) {
+			out.put((byte) (layout.getShipType(n).ordinal() | (layout.isVertical(n) ? VERTICAL_BIT : 0)));
+			writeVarint(out, layout.getOriginX(n));
+			writeVarint(out, layout.getOriginY(n));
+		}
+	}
+
+	public static Layout decode(byte[] bytes) {
+		return decode(ByteBuffer.wrap(bytes));
+	}
+
+	// Read one record from the position of the buffer. Whether the ships fit on the board is
+	// checked when the layout is put on a board.
+	public static Layout decode(ByteBuffer in) {
+		try {
+			int sizeX = readVarint(in);
+			int sizeY = readVarint(in);
+			int noOfShips = readVarint(in);
+			if (sizeX <= 0 || sizeY <= 0) {
+				throw new IllegalArgumentException("Invalid board size " + sizeX + "x" + sizeY + " in layout record.");
+			}
+			// Every ship takes at least 3 bytes; a larger count is corrupt and must not be allocated
+			if (noOfShips < 0 || noOfShips > in.remaining() / 3) {
+				throw new IllegalArgumentException("Invalid number of ships " + noOfShips + " in layout record.");
+			}
+
+			ShipType[] types = new ShipType[noOfShips];
+			int[] originX = new int[noOfShips];
+			int[] originY = new int[noOfShips];
+			boolean[] vertical = new boolean[noOfShips];
+			for (int i = 0; i < noOfShips; i++) {
+				int shipByte = in.get() & 0xFF;
+				int ordinal = shipByte & (VERTICAL_BIT - 1);
+				if ((shipByte & ~(VERTICAL_BIT | (VERTICAL_BIT - 1))) != 0 || ordinal >= TYPES.length) {
+					throw new IllegalArgumentException("Invalid ship byte " + shipByte + " in layout record.");
+				}
+				types[i] = TYPES[ordinal];
+				vertical[i] = (shipByte & VERTICAL_BIT) != 0;
+				originX[i] = readVarint(in);
+				originY[i] = readVarint(in);
+			}
+			return new Layout(sizeX, sizeY, types, originX, originY, vertical);
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated layout record.", e);
+		}
+	}
+
+	// The layout as a layout file: the board size, then a line per ship with its type and its
+	// 1-based "row*column" coordinates. Only square boards have a text form.
+	public static String toText(Layout layout) {
+		if (layout.getBoardSizeX() != layout.getBoardSizeY()) {
+			throw new IllegalArgumentException("Layout files only hold square boards, not "
+					+ layout.getBoardSizeX() + "x" + layout.getBoardSizeY() + ".");
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(layout.getBoardSizeX());
+		for (int n = 1; n <= layout.getNumberOfShips(); n++) {
+			String name = layout.getShipType(n).name();
+			sb.append(LINE_BREAK).append(name.charAt(0)).append(name.substring(1).toLowerCase(Locale.ROOT));
+			int row = layout.getOriginY(n) + 1;
+			int column = layout.getOriginX(n) + 1;
+			for (int i = 0; i < layout.getShipType(n).getLength(); i++) {
+				sb.append(';').append(row).append('*').append(column);
+				if (layout.isVertical(n)) {
+					row++;
+				} else {
+					column++;
+				}
+			}
+		}
+		return sb.append(LINE_BREAK).toString();
+	}
+
+	static int varintSize(int value) {
+		int size = 1;
+		while ((value & ~0x7F) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	static void writeVarint(ByteBuffer out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+
+	static int readVarint(ByteBuffer in) {
+		int value = 0;
+		for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+			int b = in.get();
+			value |= (b & 0x7F) << (7 * i);
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed number in layout record.");
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Name: LayoutCorpus.java
+ * Description: A file of many layouts in the binary encoding of LayoutCodec, opened through
+ * a memory map so that any layout can be read by its number without parsing the others.
+ *
+ * The file starts with a header (magic number, version, number of layouts and where the
+ * index starts), followed by the records one after another. The index at the end holds the
+ * offset of every record plus the end of the last one, 8 bytes each, so record n lies
+ * between index entries n and n + 1. The index is written last, which lets a writer stream
+ * any number of layouts without knowing the count in advance.
+ */
+
+package battleship_data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+public final class LayoutCorpus {
+
+	static final int MAGIC = 0x42534C43; // "BSLC"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24; // Magic, version, number of layouts, index offset
+	static final int INDEX_STRIDE = Long.BYTES;
+	static final long MAX_FILE_SIZE = Integer.MAX_VALUE; // A single memory map
+
+	private final MappedByteBuffer DATA;
+	private final long COUNT;
+	private final int INDEX_OFFSET;
+
+	private LayoutCorpus(MappedByteBuffer data, long count, int indexOffset) {
+		this.DATA = data;
+		this.COUNT = count;
+		this.INDEX_OFFSET = indexOffset;
+	}
+
+	// Map a corpus file and check its header. The file stays mapped until the corpus is
+	// garbage collected; the channel is closed right away.
+	public static LayoutCorpus open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			if (fileSize < HEADER_SIZE || fileSize > MAX_FILE_SIZE) {
+				throw new IOException(path + " is not a layout corpus: unexpected size " + fileSize + ".");
+			}
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+			if (data.getInt(0) != MAGIC) {
+				throw new IOException(path + " is not a layout corpus.");
+			}
+			if (data.getInt(4) != VERSION) {
+				throw new IOException(path + " has unsupported corpus version " + data.getInt(4) + ".");
+			}
+			long count = data.getLong(8);
+			long indexOffset = data.getLong(16);
+			if (count < 0 || indexOffset < HEADER_SIZE || indexOffset + (count + 1) * INDEX_STRIDE != fileSize) {
+				throw new IOException(path + " is a damaged layout corpus.");
+			}
+			return new LayoutCorpus(data, count, (int) indexOffset);
+		}
+	}
+
+	// Start writing a new corpus, replacing the file if it exists
+	public static Writer create(Path path) throws IOException {
+		return new Writer(path);
+	}
+
+	// Number of layouts in the corpus
+	public long size() {
+		return COUNT;
+	}
+
+	// Decode layout number index, counting from 0. Safe to call from several threads.
+	public Layout get(long index) {
+		if (index < 0 || index >= COUNT) {
+			throw new IndexOutOfBoundsException("Layout " + index + " of a corpus of " + COUNT + ".");
+		}
+		int entry = INDEX_OFFSET + (int) index * INDEX_STRIDE;
+		int start = (int) DATA.getLong(entry);
+		int end = (int) DATA.getLong(entry + INDEX_STRIDE);
+		if (start < HEADER_SIZE || end < start || end > INDEX_OFFSET) {
+			throw new IllegalArgumentException("Damaged index entry for layout " + index + ".");
+		}
+		// Absolute reads only, so the shared map is never moved
+		return LayoutCodec.decode(DATA.slice(start, end - start));
+	}
+
+	// Appends layouts to a new corpus file; close() writes the index and the header
+	public static final class Writer implements Closeable {
+
+		static final int BUFFER_SIZE = 1 << 16;
+
+		private final FileChannel CHANNEL;
+		private final ByteBuffer BUFFER = ByteBuffer.allocate(BUFFER_SIZE);
+		private long[] offsets = new long[1024]; // Offset of every record written so far
+		private int count;
+		private long position = HEADER_SIZE; // Where the next record starts
+
+		Writer(Path path) throws IOException {
+			CHANNEL = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			CHANNEL.position(HEADER_SIZE);
+		}
+
+		public void add(Layout layout) throws IOException {
+			int size = LayoutCodec.encodedSize(layout);
+			if (position + size + (count + 2L) * INDEX_STRIDE > MAX_FILE_SIZE) {
+				throw new IOException("The corpus is full at " + count + " layouts.");
+			}
+
+			if (BUFFER.remaining() < size) {
+				flush();
+			}
+			if (size > BUFFER.capacity()) {
+				CHANNEL.write(ByteBuffer.wrap(LayoutCodec.encode(layout)));
+			} else {
+				LayoutCodec.encode(layout, BUFFER);
+			}
+
+			if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+			}
+			offsets[count++] = position;
+			position += size;
+		}
+
+		// Add the layout of a board
+		public void add(Board board) throws IOException {
+			add(board.getLayout());
+		}
+
+		private void flush() throws IOException {
+			BUFFER.flip();
+			while (BUFFER.hasRemaining()) {
+				CHANNEL.write(BUFFER);
+			}
+			BUFFER.clear();
+		}
+
+		// Write the index after the records, then the header, which makes the file valid
+		@Override
+		public void close() throws IOException {
+			try {
+				long indexOffset = position;
+				for (int i = 0; i <= count; i++) {
+					if (BUFFER.remaining() < INDEX_STRIDE) {
+						flush();
+					}
+					BUFFER.putLong(i < count ? offsets[i] : position);
+				}
+				flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).putInt(VERSION).putLong(count).putLong(indexOffset).flip();
+				while (header.hasRemaining()) {
+					CHANNEL.write(header, header.position());
+				}
+				CHANNEL.force(false);
+			} finally {
+				CHANNEL.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Name: LayoutError.java
+ * Description: One problem found in a layout file, with the file, the 1-based line and
+ * column where it was found, and the reason.
+ */
+
+package battleship_data;
+
+public final class LayoutError {
+
+	private final String FILE;
+	private final int LINE;
+	private final int COLUMN;
+	private final String REASON;
+
+	LayoutError(String file, int line, int column, String reason) {
+		this.FILE = file;
+		this.LINE = line;
+		this.COLUMN = column;
+		this.REASON = reason;
+	}
+
+	public String getFile() {
+		return FILE;
+	}
+
+	public int getLine() {
+		return LINE;
+	}
+
+	public int getColumn() {
+		return COLUMN;
+	}
+
+	public String getReason() {
+		return REASON;
+	}
+
+	// e.g. "layout.txt:3:12: Expected '*' between row and column."
+	@Override
+	public String toString() {
+		return FILE + ":" + LINE + ":" + COLUMN + ": " + REASON;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Name: LayoutException.java
+ * Description: Thrown when a layout file is not valid. It carries every problem found in
+ * the file, not only the first one; the message lists them one per line.
+ */
+
+package battleship_data;
+
+import java.util.Collections;
+import java.util.List;
+
+public class LayoutException extends IllegalArgumentException {
+
+	private static final long serialVersionUID = 1L;
+	static final int ERRORS_IN_MESSAGE = 20; // The message lists this many errors, then a count of the rest
+
+	private final List<LayoutError> ERRORS;
+
+	LayoutException(List<LayoutError> errors) {
+		super(describe(errors));
+		this.ERRORS = Collections.unmodifiableList(errors);
+	}
+
+	static String describe(List<LayoutError> errors) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < errors.size() && i < ERRORS_IN_MESSAGE; i++) {
+			if (i > 0) {
+				sb.append(System.lineSeparator());
+			}
+			sb.append(errors.get(i));
+		}
+		if (errors.size() > ERRORS_IN_MESSAGE) {
+			sb.append(System.lineSeparator()).append("... and ")
+					.append(errors.size() - ERRORS_IN_MESSAGE).append(" more.");
+		}
+		return sb.toString();
+	}
+
+	public List<LayoutError> getErrors() {
+		return ERRORS;
+	}
+}
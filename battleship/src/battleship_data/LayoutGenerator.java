@@ -0,0 +1,232 @@
+/*
+ * Name: LayoutGenerator.java
+ * Description: Generate a large number of distinct random layouts of one board size, by the
+ * rules of Board(int, int), and stream them to a corpus file or to a directory of layout files.
+ * Two layouts count as the same if one is a rotation or reflection of the other, as no
+ * player could tell them apart. Each layout is reduced to a canonical hash: the ships are
+ * hashed in sorted order, so their numbering does not matter, under every symmetry of the
+ * board (eight for a square board, four otherwise), and the smallest hash is kept.
+ *
+ * Candidates are generated in blocks on a pool of threads, each seeded from the generator
+ * seed and its number as in Simulation. The calling thread takes the blocks in order,
+ * drops every layout whose hash it has seen and writes the others, so the output depends on
+ * the seed only, not on the number of threads. Only a few blocks are ahead of the writer at
+ * any time, and only the hashes are kept, in a LongHashSet: about 16 to 32 bytes per layout
+ * whatever the board size. Two different layouts have the same hash with a chance of about
+ * n^2 / 2^64 in n layouts, which makes a wrongly dropped layout unlikely even in a billion.
+ */
+
+package battleship_data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class LayoutGenerator {
+
+	static final int BLOCK_SIZE = 4096; // Candidates a thread generates at a time
+	static final int BLOCKS_PER_THREAD = 2; // Blocks generated ahead of the writer, per thread
+	static final int CANDIDATES_PER_LAYOUT = 16; // Give up after this many candidates per layout asked for
+
+	private final int BOARD_SIZE_X;
+	private final int BOARD_SIZE_Y;
+	private final long SEED;
+	private final int THREADS;
+
+	private long candidates; // Candidates looked at by the last run
+	private long duplicates; // Candidates dropped as duplicates by the last run
+
+	public LayoutGenerator(int sizeX, int sizeY, long seed) {
+		this(sizeX, sizeY, seed, Runtime.getRuntime().availableProcessors());
+	}
+
+	public LayoutGenerator(int sizeX, int sizeY, long seed, int threads) {
+		if (sizeX <= 0 || sizeY <= 0 || threads <= 0) {
+			throw new IllegalArgumentException("Invalid board size " + sizeX + "x" + sizeY + " or thread count " + threads + ".");
+		}
+		this.BOARD_SIZE_X = sizeX;
+		this.BOARD_SIZE_Y = sizeY;
+		this.SEED = seed;
+		this.THREADS = threads;
+	}
+
+	// Write up to count distinct layouts to a new corpus file. Returns the number written,
+	// which is less than count if the board does not have that many.
+	public long writeCorpus(Path path, long count) throws IOException {
+		try (LayoutCorpus.Writer writer = LayoutCorpus.create(path)) {
+			return generate(count, (layout, number) -> writer.add(layout));
+		}
+	}
+
+	// Write up to count distinct layouts as files layout-<number>.txt to a directory, which is
+	// created if needed. Only square boards have layout files. Returns the number written.
+	public long writeLayoutFiles(Path directory, long count) throws IOException {
+		if (BOARD_SIZE_X != BOARD_SIZE_Y) {
+			throw new IllegalArgumentException("Layout files only hold square boards, not " + BOARD_SIZE_X + "x"
+					+ BOARD_SIZE_Y + ".");
+		}
+		Files.createDirectories(directory);
+		int digits = Long.toString(Math.max(1, count)).length();
+		return generate(count, (layout, number) -> Files.write(
+				directory.resolve(String.format("layout-%0" + digits + "d.txt", number + 1)),
+				LayoutCodec.toText(layout).getBytes(StandardCharsets.US_ASCII)));
+	}
+
+	public long getCandidates() {
+		return candidates;
+	}
+
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	// Takes the distinct layouts in order, numbered from 0
+	interface Output {
+		void write(Layout layout, long number) throws IOException;
+	}
+
+	long generate(long count, Output output) throws IOException {
+		candidates = 0;
+		duplicates = 0;
+		long maxCandidates = count > Long.MAX_VALUE / CANDIDATES_PER_LAYOUT ? Long.MAX_VALUE : count * CANDIDATES_PER_LAYOUT;
+		long blocks = (maxCandidates + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		LongHashSet seen = new LongHashSet();
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS, runnable -> {
+			Thread thread = new Thread(runnable, "layout-generator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			ArrayDeque<Future<Block>> ahead = new ArrayDeque<Future<Block>>();
+			long nextBlock = 0;
+			long written = 0;
+			while (written < count) {
+				while (nextBlock < blocks && ahead.size() < THREADS * BLOCKS_PER_THREAD) {
+					long first = nextBlock++ * BLOCK_SIZE;
+					long size = Math.min(BLOCK_SIZE, maxCandidates - first);
+					ahead.add(pool.submit(() -> generateBlock(first, (int) size)));
+				}
+				if (ahead.isEmpty()) {
+					break; // Out of candidates; the board has fewer distinct layouts
+				}
+				Block block = take(ahead.poll());
+				for (int i = 0; i < block.LAYOUTS.length && written < count; i++) {
+					candidates++;
+					if (seen.add(block.HASHES[i])) {
+						output.write(block.LAYOUTS[i], written++);
+					} else {
+						duplicates++;
+					}
+				}
+			}
+			return written;
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static Block take(Future<Block> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while generating layouts.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause(); // E.g. the ships do not fit on the board
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	// Candidates number first to first + size - 1 and their canonical hashes
+	Block generateBlock(long first, int size) {
+		Block block = new Block(size);
+		Random rand = new Random();
+		long[] scratch = new long[(BOARD_SIZE_X + BOARD_SIZE_Y) / 4];
+		for (int i = 0; i < size; i++) {
+			rand.setSeed(SplitMix.mix(SEED + first + i));
+			Layout layout = new Board(BOARD_SIZE_X, BOARD_SIZE_Y, rand).getLayout();
+			block.LAYOUTS[i] = layout;
+			block.HASHES[i] = canonicalHash(layout, scratch);
+		}
+		return block;
+	}
+
+	// The smallest hash of the layout over the symmetries of its board; never negative.
+	// Equal for layouts that are rotations or reflections of each other.
+	public static long canonicalHash(Layout layout) {
+		return canonicalHash(layout, new long[layout.getNumberOfShips()]);
+	}
+
+	static long canonicalHash(Layout layout, long[] keys) {
+		int sizeX = layout.getBoardSizeX();
+		int sizeY = layout.getBoardSizeY();
+		int ships = layout.getNumberOfShips();
+		int symmetries = sizeX == sizeY ? 8 : 4;
+		long smallest = Long.MAX_VALUE;
+		for (int s = 0; s < symmetries; s++) {
+			for (int n = 1; n <= ships; n++) {
+				keys[n - 1] = shipKey(layout, n, s);
+			}
+			// Insertion sort; a fleet has a handful of ships
+			for (int i = 1; i < ships; i++) {
+				long key = keys[i];
+				int j = i - 1;
+				for (; j >= 0 && keys[j] > key; j--) {
+					keys[j + 1] = keys[j];
+				}
+				keys[j + 1] = key;
+			}
+			long hash = SplitMix.mix(((long) sizeX << 32) ^ sizeY);
+			for (int i = 0; i < ships; i++) {
+				hash = SplitMix.mix(hash + keys[i] * 0x9e3779b97f4a7c15L);
+			}
+			smallest = Math.min(smallest, hash & Long.MAX_VALUE);
+		}
+		return smallest;
+	}
+
+	// The type, direction and origin of ship number n after symmetry s of the board: mirrored on
+	// the diagonal if s has bit 4 set (square boards only), then left to right if it has bit 1
+	// set and top to bottom if it has bit 2 set. The eight combinations are every rotation and
+	// reflection of a square.
+	static long shipKey(Layout layout, int n, int s) {
+		boolean transpose = (s & 4) != 0;
+		int sizeX = transpose ? layout.getBoardSizeY() : layout.getBoardSizeX();
+		int sizeY = transpose ? layout.getBoardSizeX() : layout.getBoardSizeY();
+		int length = layout.getShipType(n).getLength();
+		boolean vertical = layout.isVertical(n) != transpose;
+		int coordX = transpose ? layout.getOriginY(n) : layout.getOriginX(n);
+		int coordY = transpose ? layout.getOriginX(n) : layout.getOriginY(n);
+
+		// A mirrored ship starts at its other end
+		if ((s & 1) != 0) {
+			coordX = sizeX - 1 - coordX - (vertical ? 0 : length - 1);
+		}
+		if ((s & 2) != 0) {
+			coordY = sizeY - 1 - coordY - (vertical ? length - 1 : 0);
+		}
+		long origin = (long) coordY * sizeX + coordX;
+		return (origin << 3) | (vertical ? LayoutCodec.VERTICAL_BIT : 0) | layout.getShipType(n).ordinal();
+	}
+
+	// Layouts generated by one task, with their canonical hashes
+	static final class Block {
+
+		private final Layout[] LAYOUTS;
+		private final long[] HASHES;
+
+		Block(int size) {
+			this.LAYOUTS = new Layout[size];
+			this.HASHES = new long[size];
+		}
+	}
+}
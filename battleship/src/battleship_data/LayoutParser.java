@@ -0,0 +1,373 @@
+/*
+ * Name: LayoutParser.java
+ * Description: Read a layout file in one pass and check it.
+ * The first line is the board size; every following line is one ship, e.g.
+ * "Carrier;3*2;3*3;3*4;3*5;3*6", with 1-based "row*column" coordinates.
+ *
+ * The file is read through a channel into a reusable buffer and decoded byte by byte:
+ * ship types are matched and numbers are decoded in place, without building strings.
+ * Parsing does not stop at the first problem. Every error is recorded with its line and
+ * column, and all of them are reported together in a LayoutException.
+ */
+
+package battleship_data;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+public class LayoutParser {
+
+	static final int BUFFER_SIZE = 1 << 16; // Bytes read from the channel at a time
+
+	private static final ShipType[] TYPES = ShipType.values();
+
+	private final String FILE_NAME; // Used in error messages
+	private final List<LayoutError> ERRORS = new ArrayList<>();
+
+	private byte[] line = new byte[128]; // The current line, without the line break
+	private int lineLength;
+	private int lineNumber;
+	private int boardSize = -1; // -1 while unknown or invalid; ships are then only checked for syntax
+	private CellStore cells; // Ship numbers of the ships read so far, to find overlaps
+	private int noOfShipLines; // Ship lines read so far, valid or not
+	private int firstExtraShipLine; // Line of the first ship beyond the maximum, 0 if none
+
+	// Valid ships read so far
+	private ShipType[] types = new ShipType[8];
+	private int[] originX = new int[8];
+	private int[] originY = new int[8];
+	private boolean[] vertical = new boolean[8];
+	private int noOfShips;
+
+	// Coordinates of the current ship line, 1-based as in the file, and where each starts
+	private int[] rows = new int[8];
+	private int[] columns = new int[8];
+	private int[] textColumns = new int[8];
+	private int noOfCoordinates;
+
+	LayoutParser(String fileName) {
+		this.FILE_NAME = fileName;
+	}
+
+	// Read and check a layout file. Throws LayoutException listing every error in the file.
+	public static Layout parse(File file) throws FileNotFoundException, IOException {
+		try (FileInputStream in = new FileInputStream(file)) {
+			return parse(file.getName(), in.getChannel());
+		}
+	}
+
+	// Read and check a layout from any channel; the name is used in error messages
+	public static Layout parse(String name, ReadableByteChannel channel) throws IOException {
+		LayoutParser parser = new LayoutParser(name);
+		parser.read(channel);
+		return parser.finish();
+	}
+
+	void read(ReadableByteChannel channel) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		boolean anyByte = false;
+		while (channel.read(buffer) >= 0) {
+			buffer.flip();
+			byte[] bytes = buffer.array();
+			for (int i = buffer.position(); i < buffer.limit(); i++) {
+				anyByte = true;
+				byte b = bytes[i];
+				if (b == '\n') {
+					processLine();
+				} else {
+					if (lineLength == line.length) {
+						line = Arrays.copyOf(line, line.length * 2);
+					}
+					line[lineLength++] = b;
+				}
+			}
+			buffer.clear();
+		}
+
+		// The last line may not end with a line break
+		if (lineLength > 0 || !anyByte) {
+			processLine();
+		}
+	}
+
+	// Check the ship count and either build the layout or throw all errors found
+	Layout finish() {
+		if (boardSize > 0) {
+			int minimumShipNumber = boardSize / 2 - 1;
+			int maximumShipNumber = boardSize / 2 + 1;
+			String noOfShipWarning = "Please only put " + minimumShipNumber + " to " + maximumShipNumber + " ships"
+					+ " for a(n) " + boardSize + "x" + boardSize + " board.";
+			if (noOfShipLines > maximumShipNumber) {
+				error(firstExtraShipLine, 1, "Too many ships! " + noOfShipWarning);
+			} else if (noOfShipLines < minimumShipNumber) {
+				error(1, 1, "Too few ships! " + noOfShipWarning);
+			}
+		}
+
+		if (!ERRORS.isEmpty()) {
+			ERRORS.sort(Comparator.comparingInt(LayoutError::getLine).thenComparingInt(LayoutError::getColumn));
+			throw new LayoutException(ERRORS);
+		}
+
+		return new Layout(boardSize, boardSize, Arrays.copyOf(types, noOfShips), Arrays.copyOf(originX, noOfShips),
+				Arrays.copyOf(originY, noOfShips), Arrays.copyOf(vertical, noOfShips));
+	}
+
+	void processLine() {
+		lineNumber++;
+		if (lineLength > 0 && line[lineLength - 1] == '\r') {
+			lineLength--;
+		}
+		if (lineNumber == 1) {
+			parseSize();
+		} else if (!isBlank()) {
+			parseShip();
+		}
+		lineLength = 0;
+	}
+
+	private boolean isBlank() {
+		for (int i = 0; i < lineLength; i++) {
+			if (line[i] != ' ' && line[i] != '\t') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// The first line holds the width and height of the square board
+	void parseSize() {
+		int start = skipSpaces(0);
+		int end = digitsEnd(start);
+		if (end == start || skipSpaces(end) != lineLength) {
+			error(1, start + 1, "Expected the board size as a number.");
+			return;
+		}
+
+		int size = decode(start, end);
+		String sizeWarning = "Please use a number between " + Board.MIN_BOARD_SIZE + " to " + Board.MAX_BOARD_SIZE + ".";
+		if (size < Board.MIN_BOARD_SIZE) {
+			error(1, start + 1, "The board is too small! " + sizeWarning);
+		} else if (size > Board.MAX_BOARD_SIZE) {
+			error(1, start + 1, "The board is too big! " + sizeWarning);
+		} else {
+			boardSize = size;
+			cells = Board.newCellStore(size, size, size / 2 + 1);
+		}
+	}
+
+	// A ship line: the type, then ";row*column" for every coordinate
+	void parseShip() {
+		int shipNumber = ++noOfShipLines;
+		if (boardSize > 0 && shipNumber == boardSize / 2 + 2) {
+			firstExtraShipLine = lineNumber;
+		}
+
+		int typeEnd = 0;
+		while (typeEnd < lineLength && line[typeEnd] != ';') {
+			typeEnd++;
+		}
+		ShipType type = matchType(typeEnd);
+		if (type == null) {
+			error(lineNumber, 1, "Unknown ship type \"" + new String(line, 0, typeEnd, StandardCharsets.UTF_8)
+					+ "\". Use Carrier, Battleship, Submarine or Destroyer.");
+			return;
+		}
+
+		noOfCoordinates = 0;
+		int pos = typeEnd;
+		while (pos < lineLength) {
+			pos++; // Skip the ';'
+			int start = pos;
+			int rowEnd = digitsEnd(pos);
+			if (rowEnd == pos) {
+				error(lineNumber, pos + 1, "Expected a row number.");
+				return;
+			}
+			if (rowEnd == lineLength || line[rowEnd] != '*') {
+				error(lineNumber, rowEnd + 1, "Expected '*' between row and column.");
+				return;
+			}
+			int columnEnd = digitsEnd(rowEnd + 1);
+			if (columnEnd == rowEnd + 1) {
+				error(lineNumber, rowEnd + 2, "Expected a column number.");
+				return;
+			}
+			if (columnEnd < lineLength && line[columnEnd] != ';') {
+				error(lineNumber, columnEnd + 1, "Unexpected character '" + (char) (line[columnEnd] & 0xFF) + "'.");
+				return;
+			}
+			addCoordinate(decode(pos, rowEnd), decode(rowEnd + 1, columnEnd), start + 1);
+			pos = columnEnd;
+		}
+
+		if (boardSize > 0) {
+			checkShip(type, shipNumber);
+		}
+	}
+
+	// Check the shape, bounds and overlap of the current ship line, and keep it if valid
+	void checkShip(ShipType type, int shipNumber) {
+		String invalid = "Ship number " + shipNumber + " is not a valid ship: ";
+		int length = type.getLength();
+		if (noOfCoordinates != length) {
+			error(lineNumber, 1, invalid + "a " + type.name().toLowerCase() + " needs " + length
+					+ " coordinates, found " + noOfCoordinates + ".");
+			return;
+		}
+
+		boolean inBound = true;
+		for (int i = 0; i < noOfCoordinates; i++) {
+			if (rows[i] < 1 || rows[i] > boardSize || columns[i] < 1 || columns[i] > boardSize) {
+				error(lineNumber, textColumns[i], invalid + rows[i] + "*" + columns[i] + " is outside the "
+						+ boardSize + "x" + boardSize + " board.");
+				inBound = false;
+			}
+		}
+		if (!inBound) {
+			return;
+		}
+
+		boolean isVertical = isAllTheSame(columns);
+		if (!isVertical && !isAllTheSame(rows)) {
+			error(lineNumber, textColumns[0], invalid + "the coordinates are not in one row or column.");
+			return;
+		}
+		if (!isConsecutive(isVertical ? rows : columns)) {
+			error(lineNumber, textColumns[0], invalid + "the coordinates are not consecutive.");
+			return;
+		}
+
+		// Convert coordinates to 0-based
+		int coordX = min(columns) - 1;
+		int coordY = min(rows) - 1;
+		long first = (long) coordY * boardSize + coordX;
+		long step = isVertical ? boardSize : 1;
+		for (int i = 0; i < noOfCoordinates; i++) {
+			long cell = (long) (rows[i] - 1) * boardSize + columns[i] - 1;
+			int other = cells.shipAt(cell);
+			if (other != 0) {
+				error(lineNumber, textColumns[i], "Ship number " + shipNumber + " overlaps ship number " + other + ".");
+				return;
+			}
+		}
+		for (int i = 0; i < length; i++) {
+			cells.setShip(first + i * step, shipNumber);
+		}
+
+		if (noOfShips == types.length) {
+			types = Arrays.copyOf(types, noOfShips * 2);
+			originX = Arrays.copyOf(originX, noOfShips * 2);
+			originY = Arrays.copyOf(originY, noOfShips * 2);
+			vertical = Arrays.copyOf(vertical, noOfShips * 2);
+		}
+		types[noOfShips] = type;
+		originX[noOfShips] = coordX;
+		originY[noOfShips] = coordY;
+		vertical[noOfShips] = isVertical;
+		noOfShips++;
+	}
+
+	private void addCoordinate(int row, int column, int textColumn) {
+		if (noOfCoordinates == rows.length) {
+			rows = Arrays.copyOf(rows, noOfCoordinates * 2);
+			columns = Arrays.copyOf(columns, noOfCoordinates * 2);
+			textColumns = Arrays.copyOf(textColumns, noOfCoordinates * 2);
+		}
+		rows[noOfCoordinates] = row;
+		columns[noOfCoordinates] = column;
+		textColumns[noOfCoordinates] = textColumn;
+		noOfCoordinates++;
+	}
+
+	// Pass the first values of an array and check if they are all the same number
+	private boolean isAllTheSame(int[] values) {
+		for (int i = 1; i < noOfCoordinates; i++) {
+			if (values[i] != values[0]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// Check if the first values of an array are distinct and consecutive once sorted,
+	// by marking each offset from the smallest value in a bitmask
+	private boolean isConsecutive(int[] values) {
+		int minimum = min(values);
+		long seen = 0;
+		for (int i = 0; i < noOfCoordinates; i++) {
+			int offset = values[i] - minimum;
+			if (offset >= noOfCoordinates || (seen & (1L << offset)) != 0) {
+				return false;
+			}
+			seen |= 1L << offset;
+		}
+		return true;
+	}
+
+	private int min(int[] values) {
+		int minimum = values[0];
+		for (int i = 1; i < noOfCoordinates; i++) {
+			minimum = Math.min(minimum, values[i]);
+		}
+		return minimum;
+	}
+
+	// Match the first bytes of the line against the ship type names, ignoring case
+	private ShipType matchType(int end) {
+		for (ShipType type : TYPES) {
+			String name = type.name();
+			if (name.length() != end) {
+				continue;
+			}
+			boolean matches = true;
+			for (int i = 0; i < end && matches; i++) {
+				int b = line[i];
+				if (b >= 'a' && b <= 'z') {
+					b -= 'a' - 'A';
+				}
+				matches = b == name.charAt(i);
+			}
+			if (matches) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+	private int skipSpaces(int pos) {
+		while (pos < lineLength && (line[pos] == ' ' || line[pos] == '\t')) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private int digitsEnd(int pos) {
+		while (pos < lineLength && line[pos] >= '0' && line[pos] <= '9') {
+			pos++;
+		}
+		return pos;
+	}
+
+	// Decode the digits from start to end; numbers too large for an int become Integer.MAX_VALUE
+	private int decode(int start, int end) {
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			value = Math.min(value * 10 + (line[i] - '0'), Integer.MAX_VALUE);
+		}
+		return (int) value;
+	}
+
+	private void error(int lineNo, int column, String reason) {
+		ERRORS.add(new LayoutError(FILE_NAME, lineNo, column, reason));
+	}
+}
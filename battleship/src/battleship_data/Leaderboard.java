@@ -0,0 +1,149 @@
+/*
+ * Name: Leaderboard.java
+ * Description: The high score table as the windows show it, kept in memory.
+ * The table file is read once by a background thread, which then watches its directory
+ * and reads it again whenever it is written or replaced. Windows only ever read the cached
+ * table, so showing the high scores never waits for the disk.
+ */
+
+package battleship_data;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class Leaderboard {
+
+	static final String LOADING = "Loading high scores...";
+
+	private static Leaderboard defaultBoard;
+
+	private final Path FILE;
+	private final List<Runnable> LISTENERS = new CopyOnWriteArrayList<>();
+
+	// Replaced after every read; the windows may read it from any thread
+	private volatile String text = LOADING;
+
+	private Thread watcher;
+	private WatchService watchService;
+
+	public Leaderboard(Path file) {
+		this.FILE = file.toAbsolutePath();
+	}
+
+	// The leaderboard of highscores.txt in the working directory, watched from the first call on
+	public static synchronized Leaderboard getDefault() {
+		if (defaultBoard == null) {
+			defaultBoard = new Leaderboard(Paths.get("highscores.txt"));
+			defaultBoard.start();
+		}
+		return defaultBoard;
+	}
+
+	// Start the background thread that reads the table and watches it for changes
+	public synchronized void start() {
+		if (watcher != null) {
+			return;
+		}
+		watcher = new Thread(this::watch, "leaderboard-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+	}
+
+	// Stop watching; the last table read stays available
+	public synchronized void stop() {
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		if (watcher != null) {
+			watcher.interrupt();
+		}
+	}
+
+	// The table as text, the header and one row per line, ready to show in a dialog
+	public String getText() {
+		return text;
+	}
+
+	// Run the listener on the watcher thread each time the table was read again
+	public void addListener(Runnable listener) {
+		LISTENERS.add(listener);
+	}
+
+	public void removeListener(Runnable listener) {
+		LISTENERS.remove(listener);
+	}
+
+	private void watch() {
+		Path directory = FILE.getParent();
+		try (WatchService service = FileSystems.getDefault().newWatchService()) {
+			synchronized (this) {
+				watchService = service;
+			}
+			// Register before the first read, so that no change slips in between
+			directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			reload();
+
+			while (true) {
+				WatchKey key = service.take();
+				boolean changed = false;
+				for (WatchEvent<?> event : key.pollEvents()) {
+					changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+							|| FILE.getFileName().equals(event.context());
+				}
+				if (changed) {
+					reload();
+				}
+				if (!key.reset()) {
+					break; // The directory is gone
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Stopped
+		} catch (IOException e) {
+			// Cannot watch; serve the table as read once
+			e.printStackTrace();
+			reload();
+		}
+	}
+
+	// Read the table file, then tell the listeners
+	void reload() {
+		List<String> lines;
+		try {
+			lines = Files.readAllLines(FILE, StandardCharsets.UTF_8);
+		} catch (NoSuchFileException e) {
+			lines = Collections.emptyList();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		StringBuilder sb = new StringBuilder();
+		for (String line : lines) {
+			sb.append(line).append('\n');
+		}
+
+		// No file yet: show the empty table
+		text = lines.isEmpty() ? HighscoreStore.formatTable(Collections.<HighscoreStore.Entry>emptyList()) : sb.toString();
+		for (Runnable listener : LISTENERS) {
+			listener.run();
+		}
+	}
+}
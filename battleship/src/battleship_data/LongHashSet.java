@@ -0,0 +1,89 @@
+/*
+ * Name: LongHashSet.java
+ * Description: A set of non-negative longs without boxing, stored in one array with open
+ * addressing and linear probing. Only adding is supported, which is all that recording
+ * shots or deduplicating layouts needs.
+ */
+
+package battleship_data;
+
+import java.util.Arrays;
+
+public class LongHashSet {
+
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] keys;
+	private int size;
+	private int mask; // keys.length - 1; the capacity is a power of two
+
+	public LongHashSet() {
+		this(16);
+	}
+
+	public LongHashSet(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+		keys = new long[capacity];
+		Arrays.fill(keys, LongIntHashMap.EMPTY);
+		mask = capacity - 1;
+	}
+
+	public boolean contains(long key) {
+		for (int i = LongIntHashMap.slot(key, mask); ; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return true;
+			}
+			if (k == LongIntHashMap.EMPTY) {
+				return false;
+			}
+		}
+	}
+
+	// Add the key; returns true if it was not in the set yet
+	public boolean add(long key) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Keys must not be negative: " + key);
+		}
+		int i = LongIntHashMap.slot(key, mask);
+		for (; keys[i] != LongIntHashMap.EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				return false;
+			}
+		}
+		keys[i] = key;
+		if (++size > keys.length * LOAD_FACTOR) {
+			rehash(keys.length * 2);
+		}
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		keys = new long[capacity];
+		Arrays.fill(keys, LongIntHashMap.EMPTY);
+		mask = capacity - 1;
+		size = 0;
+		for (long key : oldKeys) {
+			if (key != LongIntHashMap.EMPTY) {
+				add(key);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// The keys in no particular order
+	public long[] toArray() {
+		long[] result = new long[size];
+		int n = 0;
+		for (long key : keys) {
+			if (key != LongIntHashMap.EMPTY) {
+				result[n++] = key;
+			}
+		}
+		return result;
+	}
+}
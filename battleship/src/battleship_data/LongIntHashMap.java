@@ -0,0 +1,126 @@
+/*
+ * Name: LongIntHashMap.java
+ * Description: A map from non-negative long keys to int values without boxing.
+ * Keys and values live in two parallel arrays with open addressing and linear probing,
+ * so a lookup is a hash and a short scan of adjacent slots. Removal shifts the following
+ * entries back instead of leaving tombstones.
+ */
+
+package battleship_data;
+
+import java.util.Arrays;
+
+public class LongIntHashMap {
+
+	static final long EMPTY = -1L; // Marks a free slot; keys must not be negative
+	private static final float LOAD_FACTOR = 0.5f;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+	private int mask; // keys.length - 1; the capacity is a power of two
+
+	public LongIntHashMap() {
+		this(16);
+	}
+
+	public LongIntHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new int[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	// Spread the bits of the key, so that keys of neighbouring coordinates do not cluster
+	static int slot(long key, int mask) {
+		return (int) SplitMix.mix(key) & mask;
+	}
+
+	// The value of the key, or the given default if the key is absent
+	public int get(long key, int absent) {
+		for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return values[i];
+			}
+			if (k == EMPTY) {
+				return absent;
+			}
+		}
+	}
+
+	public boolean containsKey(long key) {
+		for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+			long k = keys[i];
+			if (k == key) {
+				return true;
+			}
+			if (k == EMPTY) {
+				return false;
+			}
+		}
+	}
+
+	public void put(long key, int value) {
+		if (key < 0) {
+			throw new IllegalArgumentException("Keys must not be negative: " + key);
+		}
+		int i = slot(key, mask);
+		for (; keys[i] != EMPTY; i = (i + 1) & mask) {
+			if (keys[i] == key) {
+				values[i] = value;
+				return;
+			}
+		}
+		keys[i] = key;
+		values[i] = value;
+		if (++size > keys.length * LOAD_FACTOR) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	// Remove the key if present; returns true if it was
+	public boolean remove(long key) {
+		int i = slot(key, mask);
+		for (; keys[i] != key; i = (i + 1) & mask) {
+			if (keys[i] == EMPTY) {
+				return false;
+			}
+		}
+
+		// Shift back every following entry that would no longer be found across the gap
+		int gap = i;
+		for (int j = (gap + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+			int home = slot(keys[j], mask);
+			if (((j - home) & mask) >= ((j - gap) & mask)) {
+				keys[gap] = keys[j];
+				values[gap] = values[j];
+				gap = j;
+			}
+		}
+		keys[gap] = EMPTY;
+		size--;
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+}
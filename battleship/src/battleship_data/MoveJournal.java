@@ -0,0 +1,357 @@
+/*
+ * Name: MoveJournal.java
+ * Description: Record every game and every shot in a compact binary file.
+ * The thread that plays (the Event Dispatch Thread, or the thread of a headless engine)
+ * only copies an event into a preallocated ring buffer and moves on. A background thread
+ * drains the buffer, encodes the events and writes them out, so recording adds no I/O to
+ * a move. Only one thread may record into a journal.
+ *
+ * The file starts with a magic number and a version, followed by records:
+ * - A game: the control header, the game id, the player 2 bonus, then the layout in the
+ *   encoding of LayoutCodec.
+ * - A switch to another game already started: the control header and the game id.
+ * - A shot in the current game: one varint header holding the outcome, ship type and
+ *   player, then x and y as zigzag varint deltas from the previous shot of that run of
+ *   records, then the score. A shot on a 10x10 board takes 4 or 5 bytes.
+ * A journal cut off by a crash ends in a partial record, which is dropped when the journal
+ * is opened again. See JournalReader for reading it back.
+ */
+
+package battleship_data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class MoveJournal implements AutoCloseable {
+
+	static final int MAGIC = 0x42534D4A; // "BSMJ"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 5; // Magic and version byte
+
+	// Shot header: outcome in bits 0-2 (CONTROL marks a control record), type ordinal + 1 in
+	// bits 3-5 (0 for none), player - 1 from bit 6 up
+	static final int CONTROL = 7;
+	static final int CONTROL_GAME = 0; // Control kinds, from bit 3 up
+	static final int CONTROL_SWITCH = 1;
+
+	static final int DEFAULT_CAPACITY = 1 << 14; // Events the ring buffer holds
+	static final int BUFFER_SIZE = 1 << 16; // Bytes encoded before they are written
+	static final int MAX_VARLONG_BYTES = 10;
+	static final long MIN_IDLE_PARK_NANOS = 1_000_000; // Writer sleep while there is nothing to write,
+	static final long MAX_IDLE_PARK_NANOS = 100_000_000; // doubled each time it wakes up to nothing
+	static final long FULL_PARK_NANOS = 10_000; // Recorder sleep while the ring buffer is full
+
+	private static MoveJournal defaultJournal;
+	private static long lastGameId;
+
+	private final Path FILE;
+
+	// The ring buffer, one event per slot; LAYOUTS is set for games only, and BONUS_OR_RESULT
+	// holds the bonus of a game or the packed ShotResult of a shot
+	private final int MASK;
+	private final long[] GAME_IDS;
+	private final int[] XS;
+	private final int[] YS;
+	private final int[] BONUS_OR_RESULT;
+	private final Layout[] LAYOUTS;
+
+	private final AtomicLong HEAD = new AtomicLong(); // Next slot to write out; set by the writer
+	private final AtomicLong TAIL = new AtomicLong(); // Next slot to fill; set by the recorder
+	private final Thread WRITER;
+
+	// Recorder side
+	private long tail;
+	private long cachedHead; // The head as last seen, so the recorder rarely reads the writer's counter
+	private long stalls; // Times the recorder had to wait for room
+	private volatile boolean closing;
+
+	// Writer side
+	private volatile IOException failure; // The first write error; later events are dropped
+	private long currentGame; // Game of the last record written
+	private int lastX; // Previous shot of the current run of records
+	private int lastY;
+
+	public MoveJournal(Path file) {
+		this(file, DEFAULT_CAPACITY);
+	}
+
+	// The capacity is rounded up to a power of two
+	public MoveJournal(Path file, int capacity) {
+		this.FILE = file;
+		int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		this.MASK = size - 1;
+		this.GAME_IDS = new long[size];
+		this.XS = new int[size];
+		this.YS = new int[size];
+		this.BONUS_OR_RESULT = new int[size];
+		this.LAYOUTS = new Layout[size];
+		this.WRITER = new Thread(this::write, "move-journal-writer");
+		this.WRITER.setDaemon(true);
+		this.WRITER.start();
+	}
+
+	// The journal moves.journal in the working directory, closed when the program exits
+	public static synchronized MoveJournal getDefault() {
+		if (defaultJournal == null) {
+			MoveJournal journal = new MoveJournal(Paths.get("moves.journal"));
+			Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "move-journal-close"));
+			defaultJournal = journal;
+		}
+		return defaultJournal;
+	}
+
+	// A game id not handed out before in this run, based on the clock so that runs differ
+	public static synchronized long newGameId() {
+		lastGameId = Math.max(lastGameId + 1, System.currentTimeMillis() << 10);
+		return lastGameId;
+	}
+
+	// Record the start of a game with its layout, before its first shot
+	public void startGame(long gameId, Board board, int playerBonus) {
+		long slot = claim();
+		int i = (int) slot & MASK;
+		GAME_IDS[i] = gameId;
+		BONUS_OR_RESULT[i] = playerBonus;
+		LAYOUTS[i] = board.getLayout();
+		publish(slot);
+	}
+
+	// Record a shot and the packed ShotResult it had
+	public void recordShot(long gameId, int coordX, int coordY, int result) {
+		long slot = claim();
+		int i = (int) slot & MASK;
+		GAME_IDS[i] = gameId;
+		XS[i] = coordX;
+		YS[i] = coordY;
+		BONUS_OR_RESULT[i] = result;
+		publish(slot);
+	}
+
+	// Wait until the free slot at the tail is really free
+	private long claim() {
+		if (closing) {
+			throw new IllegalStateException("The journal is closed.");
+		}
+		while (tail - cachedHead > MASK) {
+			cachedHead = HEAD.get();
+			if (tail - cachedHead > MASK) {
+				stalls++;
+				LockSupport.parkNanos(FULL_PARK_NANOS);
+			}
+		}
+		return tail;
+	}
+
+	// Hand the filled slot to the writer; the ordered store publishes the slot contents too
+	private void publish(long slot) {
+		tail = slot + 1;
+		TAIL.lazySet(tail);
+	}
+
+	// Write out every event recorded so far and stop the writer
+	@Override
+	public void close() {
+		closing = true;
+		LockSupport.unpark(WRITER);
+		try {
+			WRITER.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Times recording had to wait because the writer fell a whole buffer behind
+	public long getStalls() {
+		return stalls;
+	}
+
+	// The write error that stopped the journal, or null
+	public IOException getFailure() {
+		return failure;
+	}
+
+	public Path getFile() {
+		return FILE;
+	}
+
+	// The writer thread: open the file, then encode and write events until closed
+	private void write() {
+		ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+		FileChannel channel = null;
+		try {
+			channel = openForAppend();
+		} catch (IOException e) {
+			fail(e);
+		}
+
+		long head = 0;
+		long idleNanos = MIN_IDLE_PARK_NANOS;
+		while (true) {
+			long available = TAIL.get();
+			if (head == available) {
+				if (closing && TAIL.get() == head) {
+					break;
+				}
+				// Nothing to do: write out what was encoded, then sleep a little longer each time
+				if (out.position() > 0) {
+					channel = flush(channel, out);
+				}
+				LockSupport.parkNanos(idleNanos);
+				idleNanos = Math.min(idleNanos * 2, MAX_IDLE_PARK_NANOS);
+				continue;
+			}
+			idleNanos = MIN_IDLE_PARK_NANOS;
+			for (; head < available; head++) {
+				int i = (int) head & MASK;
+				Layout layout = LAYOUTS[i];
+				LAYOUTS[i] = null;
+				if (channel != null) {
+					channel = encode(channel, out, GAME_IDS[i], XS[i], YS[i], BONUS_OR_RESULT[i], layout);
+				}
+			}
+			HEAD.lazySet(head);
+		}
+
+		channel = flush(channel, out);
+		if (channel != null) {
+			try {
+				channel.force(false);
+				channel.close();
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+	}
+
+	// Open the file for appending: write the header of a new file, or drop the partial record
+	// a crash may have left at the end of an old one
+	private FileChannel openForAppend() throws IOException {
+		FileChannel channel = FileChannel.open(FILE, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		try {
+			if (channel.size() < HEADER_SIZE) {
+				channel.truncate(0);
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC).put((byte) VERSION).flip();
+				while (header.hasRemaining()) {
+					channel.write(header);
+				}
+			} else {
+				long end = JournalReader.validEnd(channel);
+				channel.truncate(end);
+				channel.position(end);
+			}
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+		// Start this run with a game or switch record, so that its first shot is never read
+		// against a game from an earlier run
+		currentGame = Long.MIN_VALUE;
+		return channel;
+	}
+
+	private FileChannel encode(FileChannel channel, ByteBuffer out, long gameId, int coordX, int coordY,
+			int bonusOrResult, Layout layout) {
+		int needed = layout == null ? 5 * LayoutCodec.MAX_VARINT_BYTES + MAX_VARLONG_BYTES
+				: 2 * LayoutCodec.MAX_VARINT_BYTES + MAX_VARLONG_BYTES + LayoutCodec.encodedSize(layout);
+		if (out.remaining() < needed) {
+			channel = flush(channel, out);
+			if (channel == null) {
+				return null;
+			}
+		}
+		ByteBuffer target = out.remaining() >= needed ? out : ByteBuffer.allocate(needed);
+
+		if (layout != null) {
+			writeVarint(target, CONTROL | (CONTROL_GAME << 3));
+			writeVarLong(target, gameId);
+			writeVarint(target, bonusOrResult);
+			LayoutCodec.encode(layout, target);
+			startRun(gameId);
+		} else {
+			if (gameId != currentGame) {
+				writeVarint(target, CONTROL | (CONTROL_SWITCH << 3));
+				writeVarLong(target, gameId);
+				startRun(gameId);
+			}
+			ShipType type = ShotResult.shipType(bonusOrResult);
+			writeVarint(target, ShotResult.outcome(bonusOrResult) | ((type == null ? 0 : type.ordinal() + 1) << 3)
+					| ((ShotResult.player(bonusOrResult) - 1) << 6));
+			writeVarint(target, zigzag(coordX - lastX));
+			writeVarint(target, zigzag(coordY - lastY));
+			writeVarint(target, ShotResult.score(bonusOrResult));
+			lastX = coordX;
+			lastY = coordY;
+		}
+
+		if (target != out) {
+			target.flip();
+			channel = writeFully(channel, target);
+		}
+		return channel;
+	}
+
+	private void startRun(long gameId) {
+		currentGame = gameId;
+		lastX = 0;
+		lastY = 0;
+	}
+
+	private FileChannel flush(FileChannel channel, ByteBuffer out) {
+		out.flip();
+		channel = writeFully(channel, out);
+		out.clear();
+		return channel;
+	}
+
+	// Returns null once writing failed; the journal then only drains the ring buffer
+	private FileChannel writeFully(FileChannel channel, ByteBuffer bytes) {
+		if (channel == null) {
+			return null;
+		}
+		try {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			return channel;
+		} catch (IOException e) {
+			fail(e);
+			try {
+				channel.close();
+			} catch (IOException ignored) {
+				// Already failed
+			}
+			return null;
+		}
+	}
+
+	private void fail(IOException e) {
+		if (failure == null) {
+			failure = e;
+			e.printStackTrace();
+		}
+	}
+
+	static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	static void writeVarint(ByteBuffer out, int value) {
+		LayoutCodec.writeVarint(out, value);
+	}
+
+	static void writeVarLong(ByteBuffer out, long value) {
+		while ((value & ~0x7FL) != 0) {
+			out.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.put((byte) value);
+	}
+}
@@ -1,100 +1,186 @@
 /*
  * Name: ScoreBoard.java
- * Description: Monitor scores of a game, and modify the highscore document.
+ * Description: Monitor scores of a game, and add them to the high scores through HighscoreStore.
+ * A game has any number of players up to ShotResult.MAX_PLAYER (255), which is as many as a
+ * shot result can name, each in a team; the classic game has two players, each a team of
+ * their own. Scores are kept in LongAdders, so players scoring from several threads
+ * never wait for each other, and reading the standings never blocks them. A read while
+ * others score may miss their latest points, but it never sees points that were not scored.
+ * High score updates are recorded as HighscoreEvents when a flight recording enables them.
  */
 
 package battleship_data;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 public class ScoreBoard {
 
-	private final int[] CURRENT_SCORES = new int[2]; // [0]: player 1 score; [1] player 2 score
+	private final LongAdder[] CURRENT_SCORES; // [player - 1]
+	private final int[] TEAMS; // [player - 1]: the team of the player, from 1
+	private final int NO_OF_TEAMS;
 
-	// [0] is player 1 score, [1] is player 2 score
+	// The classic game: player 1 against player 2
 	public ScoreBoard() {
-		CURRENT_SCORES[0] = 0;
-		CURRENT_SCORES[1] = 0;
+		this(2);
+	}
+
+	// Players each on a team of their own
+	public ScoreBoard(int players) {
+		this(ownTeams(players));
+	}
+
+	// teams[player - 1] is the team of the player; teams are numbered from 1 without gaps
+	public ScoreBoard(int[] teams) {
+		NO_OF_TEAMS = countTeams(teams);
+		TEAMS = teams.clone();
+		CURRENT_SCORES = new LongAdder[teams.length];
+		for (int i = 0; i < CURRENT_SCORES.length; i++) {
+			CURRENT_SCORES[i] = new LongAdder();
+		}
+	}
+
+	// The number of teams; throws IllegalArgumentException if the teams are not valid
+	static int countTeams(int[] teams) {
+		if (teams.length == 0) {
+			throw new IllegalArgumentException("A game needs at least one player.");
+		}
+		if (teams.length > ShotResult.MAX_PLAYER) {
+			throw new IllegalArgumentException("A game has at most " + ShotResult.MAX_PLAYER + " players, not "
+					+ teams.length + ".");
+		}
+		int noOfTeams = 0;
+		for (int team : teams) {
+			if (team < 1 || team > teams.length) {
+				throw new IllegalArgumentException("Invalid team " + team + " for " + teams.length + " players.");
+			}
+			noOfTeams = Math.max(noOfTeams, team);
+		}
+		boolean[] used = new boolean[noOfTeams + 1];
+		for (int team : teams) {
+			used[team] = true;
+		}
+		for (int team = 1; team <= noOfTeams; team++) {
+			if (!used[team]) {
+				throw new IllegalArgumentException("Team " + team + " has no players.");
+			}
+		}
+		return noOfTeams;
+	}
+
+	private static int[] ownTeams(int players) {
+		int[] teams = new int[Math.max(0, players)];
+		for (int i = 0; i < teams.length; i++) {
+			teams[i] = i + 1;
+		}
+		return teams;
+	}
+
+	public int getNumberOfPlayers() {
+		return CURRENT_SCORES.length;
+	}
+
+	public int getNumberOfTeams() {
+		return NO_OF_TEAMS;
+	}
+
+	public int getTeam(int player) {
+		return TEAMS[player - 1];
 	}
 
 	public int getScore(int player) {
-		return CURRENT_SCORES[player - 1];
+		return (int) CURRENT_SCORES[player - 1].sum();
 	}
 
+	// Safe to call from several threads at once
 	public void addScoreToPlayer(int score, int player) {
-		CURRENT_SCORES[player - 1] += score;
+		if (score != 0) {
+			CURRENT_SCORES[player - 1].add(score);
+		}
+	}
+
+	// The scores of all players, [player - 1]
+	public int[] getScores() {
+		int[] scores = new int[CURRENT_SCORES.length];
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = (int) CURRENT_SCORES[i].sum();
+		}
+		return scores;
+	}
+
+	// The sum of the scores of the players in the team
+	public int getTeamScore(int team) {
+		long sum = 0;
+		for (int i = 0; i < TEAMS.length; i++) {
+			if (TEAMS[i] == team) {
+				sum += CURRENT_SCORES[i].sum();
+			}
+		}
+		return (int) sum;
 	}
 
 	// Return 0 if tie, otherwise return player number
 	public int getWinner() {
-		if (CURRENT_SCORES[0] > CURRENT_SCORES[1]) {
-			return 1;
-		} else if (CURRENT_SCORES[0] < CURRENT_SCORES[1]) {
-			return 2;
-		} else {
-			return 0;
-		}
+		return best(getScores());
 	}
 
-	// Update highscore.txt based on current score
-	public void evaluateHighscore() {
+	// Return 0 if tie, otherwise return team number
+	public int getWinningTeam() {
+		int[] teamScores = new int[NO_OF_TEAMS];
+		int[] scores = getScores();
+		for (int i = 0; i < scores.length; i++) {
+			teamScores[TEAMS[i] - 1] += scores[i];
+		}
+		return best(teamScores);
+	}
 
-		// Read highscore.txt and generate a nested list of scores
-		ArrayList<ArrayList<String>> highscores = new ArrayList<ArrayList<String>>();
-		try(BufferedReader br = new BufferedReader(new FileReader("highscores.txt"))) {
-			br.readLine();
-			for (int i = 0; i < 10; i++) {
-				ArrayList<String> score = new ArrayList<String>();
-				String line = br.readLine();
-				String[] items = line.split("\t");
-				score.add(items[1]);
-				score.add(items[2]);
-				highscores.add(score);
+	// The number, from 1, of the highest score; 0 if more than one has it
+	private static int best(int[] scores) {
+		int best = 0;
+		boolean tie = false;
+		for (int i = 0; i < scores.length; i++) {
+			if (best == 0 || scores[i] > scores[best - 1]) {
+				best = i + 1;
+				tie = false;
+			} else if (scores[i] == scores[best - 1]) {
+				tie = true;
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
 		}
+		return tie ? 0 : best;
+	}
 
-		// Add the scores of both players to the list of scores
-		ArrayList<String> p1score = new ArrayList<String>();
-		p1score.add("Player 1");
-		p1score.add(Integer.toString(CURRENT_SCORES[0]));
-		ArrayList<String> p2score = new ArrayList<String>();
-		p2score.add("Player 2");
-		p2score.add(Integer.toString(CURRENT_SCORES[1]));
-		highscores.add(p1score);
-		highscores.add(p2score);
-
-		// Reverse sort the list using the score of the players as the key
-		highscores.sort((ArrayList<String> score1, ArrayList<String> score2)->
-		Integer.parseInt(score2.get(1))-Integer.parseInt(score1.get(1)));
-
-		// Erase the old file, put the first 10 scores of the list to the document
-		try (FileWriter fw = new FileWriter("highscores.txt", false)) {
-			fw.write("No\tPlayer\tScore" + System.lineSeparator());
-			for (int i = 1; i < 11; i++) {
-				fw.write(Integer.toString(i) + "\t" + highscores.get(i-1).get(0) + "\t" + 
-						highscores.get(i-1).get(1) + System.lineSeparator());
+	// Add the scores of this game to the high scores; highscores.txt is updated if they made it
+	public void evaluateHighscore() {
+		HighscoreEvent event = new HighscoreEvent();
+		event.begin();
+		try {
+			String[] names = new String[CURRENT_SCORES.length];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = "Player " + (i + 1);
 			}
+			event.bytes = HighscoreStore.getDefault().record(names, getScores());
 		} catch (Exception e) {
+			event.failed = true;
 			e.printStackTrace();
 		}
+		if (event.shouldCommit()) {
+			event.operation = "record";
+			event.commit();
+		}
 	}
 
 	// Reset highscore.txt to default (all players are N/A; all scores are 0).
 	public static void resetHighscores() {
-		try (FileWriter fw = new FileWriter("highscores.txt", false)) {
-			fw.write("No\tPlayer\tScore" + System.lineSeparator());
-			for (int i = 1; i < 11; i++) {
-				fw.write(Integer.toString(i) + "\tN\\A\t0" + System.lineSeparator());
-			}
+		HighscoreEvent event = new HighscoreEvent();
+		event.begin();
+		try {
+			event.bytes = HighscoreStore.getDefault().reset();
 		} catch (Exception e) {
+			event.failed = true;
 			e.printStackTrace();
 		}
+		if (event.shouldCommit()) {
+			event.operation = "reset";
+			event.commit();
+		}
 	}
-
-
 }
\ No newline at end of file
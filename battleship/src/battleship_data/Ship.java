@@ -2,6 +2,8 @@
  * Name: Ship.java
  * Description: Defines the properties and behavior of ship objects, which the latter is
  * mainly determining whether it is sunk. 
+ * Each part of a ship is a bit of a segment mask, counted from the origin, so hitting a
+ * part a second time changes nothing.
  */
 
 package battleship_data;
@@ -12,11 +14,23 @@ public class Ship {
 
 	private final int MY_SHIP_NUMBER; // Indicates when the ship is generated among all ships
 	private final ShipType MY_SHIP_TYPE; // Points to a ship type
+	private final int ORIGIN_X; // The coordinate with the smallest x and y; -1 if not on a board
+	private final int ORIGIN_Y;
+	private final boolean VERTICAL; // Whether the ship spans rows (true) or columns (false)
 	private int remainingParts; // Every time a ship is hit, it has less coordinates left to be hit
+	private int hitSegments; // Bit i is set once part i, counted from the origin, has been hit
 
 	public Ship(ShipType type, int shipNumber) {
+		this(type, shipNumber, -1, -1, false);
+	}
+
+	// A ship placed on a board, starting at the coordinate with the smallest x and y
+	Ship(ShipType type, int shipNumber, int originX, int originY, boolean vertical) {
 		this.MY_SHIP_TYPE = type;
 		this.MY_SHIP_NUMBER = shipNumber;
+		this.ORIGIN_X = originX;
+		this.ORIGIN_Y = originY;
+		this.VERTICAL = vertical;
 		this.remainingParts = type.getLength();
 	}
 
@@ -36,9 +50,38 @@ public class Ship {
 		return MY_SHIP_NUMBER;
 	}
 
-	// When the ship if hit, it has less parts up
+	public int getOriginX() {
+		return ORIGIN_X;
+	}
+
+	public int getOriginY() {
+		return ORIGIN_Y;
+	}
+
+	public boolean isVertical() {
+		return VERTICAL;
+	}
+
+	// When the ship if hit, it has less parts up: the first part not hit yet, if any
 	public void hit() {
+		hit(Integer.numberOfTrailingZeros(~hitSegments));
+	}
+
+	// Hit the part of the ship at the given distance from its origin. Returns false if that
+	// part had been hit before, or is beyond the ship, and nothing changed.
+	public boolean hit(int segment) {
+		int bit = 1 << segment;
+		if (segment < 0 || segment >= MY_SHIP_TYPE.getLength() || (hitSegments & bit) != 0) {
+			return false;
+		}
+		hitSegments |= bit;
 		remainingParts--;
+		return true;
+	}
+
+	// Whether the part at the given distance from the origin has been hit
+	public boolean isHit(int segment) {
+		return (hitSegments >>> segment & 1) != 0;
 	}
 
 
@@ -0,0 +1,173 @@
+/*
+ * Name: ShipPlacer.java
+ * Description: Put a number of randomly chosen ships on an empty board.
+ * Each ship gets a random type, then a placement drawn uniformly from the legal placements
+ * of that type: a few rejection samples first, which is cheap on sparse boards, and an exact
+ * count of the legal placements if those all collide. If no type fits anywhere, the previous
+ * ship is taken off and placed again. The number of placement tests is bounded, and running
+ * out of them is reported as an infeasible board instead of looping forever.
+ */
+
+package battleship_data;
+
+import java.util.Random;
+
+class ShipPlacer {
+
+	static final int SAMPLES_PER_SHIP = 32; // Rejection samples before counting all legal placements
+	static final int BACKTRACKS_PER_SHIP = 16; // Ships that may be taken off again, per ship on the board
+
+	// Convert random integers as array index to ship types
+	private static final ShipType[] INT_TO_SHIP = ShipType.values();
+
+	private final Board BOARD;
+	private final Random RAND;
+	private long attempts; // Placement tests done so far
+	private int pickedX; // The placement found by forEachLegal()
+	private int pickedY;
+	private boolean pickedVertical;
+
+	ShipPlacer(Board board, Random rand) {
+		this.BOARD = board;
+		this.RAND = rand;
+		this.attempts = 0;
+	}
+
+	// Upper bound on the placement tests needed to fill a board, whether it succeeds or not.
+	// Each ship is tried once plus twice per backtrack (taken off, then tried again), and each
+	// try costs the rejection samples plus at most two scans over every type's placements.
+	static long maxAttempts(int sizeX, int sizeY, int noOfShips) {
+		long placementsPerScan = 0;
+		for (ShipType type : INT_TO_SHIP) {
+			placementsPerScan += placements(sizeX, sizeY, type.getLength());
+		}
+		long tries = (long) noOfShips * (1 + 2 * BACKTRACKS_PER_SHIP) + 1;
+		return tries * (SAMPLES_PER_SHIP + 2 * placementsPerScan);
+	}
+
+	// Number of in-bound placements, horizontal and vertical, of a ship of a given length
+	static long placements(int sizeX, int sizeY, int length) {
+		return horizontalPlacements(sizeX, sizeY, length) + verticalPlacements(sizeX, sizeY, length);
+	}
+
+	static long horizontalPlacements(int sizeX, int sizeY, int length) {
+		return sizeX < length ? 0 : (long) (sizeX - length + 1) * sizeY;
+	}
+
+	static long verticalPlacements(int sizeX, int sizeY, int length) {
+		return sizeY < length ? 0 : (long) sizeX * (sizeY - length + 1);
+	}
+
+	// Put ships number 1 to noOfShips on the board. Returns the number of placement tests taken.
+	long place(int noOfShips) {
+
+		int sizeX = BOARD.getBoardSizeX();
+		int sizeY = BOARD.getBoardSizeY();
+		String infeasible = "Cannot fit " + noOfShips + " ships on a(n) " + sizeX + "x" + sizeY + " board.";
+
+		// Every ship covers at least two coordinates, and at least one type must fit at all
+		if (noOfShips > 0 && (2L * noOfShips > (long) sizeX * sizeY
+				|| placements(sizeX, sizeY, ShipType.DESTROYER.getLength()) == 0)) {
+			throw new IllegalArgumentException(infeasible);
+		}
+
+		int backtracksLeft = noOfShips * BACKTRACKS_PER_SHIP;
+		int shipNumber = 1;
+
+		while (shipNumber <= noOfShips) {
+			if (placeShip(shipNumber)) {
+				shipNumber++;
+			} else if (shipNumber > 1 && backtracksLeft > 0) {
+				// Nothing fits any more; take the previous ship off and try it somewhere else
+				backtracksLeft--;
+				shipNumber--;
+				BOARD.removeShipFromMap(shipNumber);
+			} else {
+				throw new IllegalArgumentException(infeasible);
+			}
+		}
+
+		return attempts;
+	}
+
+	// Pick a random type and put the ship somewhere legal. If that type does not fit anywhere,
+	// the other types are tried in turn. Returns false if no type fits.
+	boolean placeShip(int shipNumber) {
+		int first = RAND.nextInt(INT_TO_SHIP.length);
+		for (int i = 0; i < INT_TO_SHIP.length; i++) {
+			ShipType type = INT_TO_SHIP[(first + i) % INT_TO_SHIP.length];
+			if (i == 0 && sample(type, shipNumber)) {
+				return true;
+			}
+			if (pickFromAll(type, shipNumber)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Draw in-bound placements uniformly until one is free. Conditioned on success this is
+	// uniform over the legal placements.
+	boolean sample(ShipType type, int shipNumber) {
+		int sizeX = BOARD.getBoardSizeX();
+		int sizeY = BOARD.getBoardSizeY();
+		int length = type.getLength();
+		long horizontal = horizontalPlacements(sizeX, sizeY, length);
+		long total = horizontal + verticalPlacements(sizeX, sizeY, length);
+		if (total == 0) {
+			return false;
+		}
+
+		for (int i = 0; i < SAMPLES_PER_SHIP; i++) {
+			attempts++;
+			boolean vertical = RAND.nextDouble() * total >= horizontal;
+			int coordX = RAND.nextInt(vertical ? sizeX : sizeX - length + 1);
+			int coordY = RAND.nextInt(vertical ? sizeY - length + 1 : sizeY);
+			if (BOARD.putShipOnMap(type, shipNumber, coordX, coordY, vertical)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Count every legal placement of the type, then put the ship on a uniformly chosen one
+	boolean pickFromAll(ShipType type, int shipNumber) {
+		long legal = forEachLegal(type, -1);
+		if (legal == 0) {
+			return false;
+		}
+		long chosen = (long) (RAND.nextDouble() * legal);
+		forEachLegal(type, Math.min(chosen, legal - 1));
+		BOARD.putShipOnMap(type, shipNumber, pickedX, pickedY, pickedVertical);
+		return true;
+	}
+
+	// Walk the legal placements in a fixed order. Stops at the one with the given index and
+	// remembers it, or counts all of them if the index is negative.
+	long forEachLegal(ShipType type, long stopAt) {
+		int sizeX = BOARD.getBoardSizeX();
+		int sizeY = BOARD.getBoardSizeY();
+		int length = type.getLength();
+		long legal = 0;
+		for (int v = 0; v < 2; v++) {
+			boolean vertical = v == 1;
+			int maxX = vertical ? sizeX : sizeX - length + 1;
+			int maxY = vertical ? sizeY - length + 1 : sizeY;
+			for (int coordY = 0; coordY < maxY; coordY++) {
+				for (int coordX = 0; coordX < maxX; coordX++) {
+					attempts++;
+					if (BOARD.isFree(coordX, coordY, vertical, length)) {
+						if (legal == stopAt) {
+							pickedX = coordX;
+							pickedY = coordY;
+							pickedVertical = vertical;
+							return legal;
+						}
+						legal++;
+					}
+				}
+			}
+		}
+		return legal;
+	}
+}
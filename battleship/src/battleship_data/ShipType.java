@@ -24,11 +24,11 @@ public enum ShipType {
 		this.color = color;
 	}
 
-	int getLength() {
+	public int getLength() {
 		return length;
 	}
 
-	int getScore() {
+	public int getScore() {
 		return score;
 	}
 
@@ -0,0 +1,41 @@
+/*
+ * Name: ShotEvent.java
+ * Description: A Java Flight Recorder event for every coordinate hit on a board, with what
+ * it hit and the time it took. Disabled unless a recording enables it (see battleship.jfc).
+ */
+
+package battleship_data;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("battleship.Shot")
+@Label("Shot")
+@Category("Battleship")
+@Description("A coordinate of a board was hit")
+@Enabled(false)
+@StackTrace(false)
+final class ShotEvent extends Event {
+
+	@Label("X")
+	int coordX;
+
+	@Label("Y")
+	int coordY;
+
+	@Label("Ship Number")
+	@Description("The ship on the coordinate; 0 for a miss")
+	int shipNumber;
+
+	@Label("Already Shot")
+	boolean alreadyShot;
+
+	@Label("Sunk")
+	@Description("The shot sank the ship")
+	boolean sunk;
+}
@@ -0,0 +1,75 @@
+/*
+ * Name: ShotResult.java
+ * Description: Pack the outcome of a shot into a single int, so that firing at a board
+ * allocates nothing. The lowest 3 bits hold the outcome, the next 3 bits the ship type
+ * (0 if no ship), then 8 bits for the player who fired and the remaining bits for the
+ * score that player received.
+ */
+
+package battleship_data;
+
+public final class ShotResult {
+
+	public static final int MISS = 0; // No ship on the coordinate
+	public static final int HIT = 1; // A ship was hit but is still afloat
+	public static final int SUNK = 2; // The last part of a ship was hit
+	public static final int ALREADY_SHOT = 3; // The coordinate had been hit before; nothing changed
+	public static final int GAME_OVER = 4; // The last part of the last ship was hit
+
+	public static final int MAX_PLAYER = 0xFF; // The largest player number 8 bits hold
+
+	private static final ShipType[] INT_TO_SHIP = ShipType.values();
+
+	private static final int TYPE_SHIFT = 3;
+	private static final int PLAYER_SHIFT = 6;
+	private static final int SCORE_SHIFT = 14;
+
+	private ShotResult() {
+	}
+
+	public static int of(int outcome, ShipType type, int player, int score) {
+		int typeBits = type == null ? 0 : type.ordinal() + 1;
+		return outcome | typeBits << TYPE_SHIFT | player << PLAYER_SHIFT | score << SCORE_SHIFT;
+	}
+
+	public static int outcome(int result) {
+		return result & 0x7;
+	}
+
+	// The type of the ship on the coordinate, or null if there is none
+	public static ShipType shipType(int result) {
+		int typeBits = (result >>> TYPE_SHIFT) & 0x7;
+		return typeBits == 0 ? null : INT_TO_SHIP[typeBits - 1];
+	}
+
+	public static int player(int result) {
+		return (result >>> PLAYER_SHIFT) & 0xFF;
+	}
+
+	public static int score(int result) {
+		return result >>> SCORE_SHIFT;
+	}
+
+	// True if the shot hit a ship, whether or not it sank
+	public static boolean isHit(int result) {
+		int outcome = outcome(result);
+		return outcome == HIT || outcome == SUNK || outcome == GAME_OVER;
+	}
+
+	public static boolean isSunk(int result) {
+		int outcome = outcome(result);
+		return outcome == SUNK || outcome == GAME_OVER;
+	}
+
+	public static boolean isGameOver(int result) {
+		return outcome(result) == GAME_OVER;
+	}
+
+	// Readable form for logs and debugging, e.g. "SUNK DESTROYER (player 2, 65 pts)"
+	public static String toString(int result) {
+		String[] outcomes = {"MISS", "HIT", "SUNK", "ALREADY_SHOT", "GAME_OVER"};
+		ShipType type = shipType(result);
+		return outcomes[outcome(result)] + (type == null ? "" : " " + type.name())
+				+ " (player " + player(result) + ", " + score(result) + " pts)";
+	}
+}
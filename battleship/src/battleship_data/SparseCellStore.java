@@ -0,0 +1,63 @@
+/*
+ * Name: SparseCellStore.java
+ * Description: Cell store for large boards. Only coordinates with a ship (mapped to the
+ * ship number) and coordinates that have been shot are stored, in primitive hash tables,
+ * so memory grows with the ships and shots instead of the area and lookups stay O(1)
+ * expected.
+ */
+
+package battleship_data;
+
+import java.util.Arrays;
+
+class SparseCellStore implements CellStore {
+
+	private final LongIntHashMap SHIPS; // coordinate -> ship number, for coordinates with a ship
+	private final LongHashSet SHOTS; // coordinates that have been hit
+
+	SparseCellStore(int expectedShipCells) {
+		SHIPS = new LongIntHashMap(expectedShipCells);
+		SHOTS = new LongHashSet();
+	}
+
+	@Override
+	public int shipAt(long cell) {
+		return SHIPS.get(cell, 0);
+	}
+
+	@Override
+	public void setShip(long cell, int shipNumber) {
+		if (shipNumber == 0) {
+			SHIPS.remove(cell);
+		} else {
+			SHIPS.put(cell, shipNumber);
+		}
+	}
+
+	@Override
+	public boolean isFree(long cell, long step, int length) {
+		for (int i = 0; i < length; i++, cell += step) {
+			if (SHIPS.containsKey(cell)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isShot(long cell) {
+		return SHOTS.contains(cell);
+	}
+
+	@Override
+	public void markShot(long cell) {
+		SHOTS.add(cell);
+	}
+
+	@Override
+	public long[] shotCells() {
+		long[] cells = SHOTS.toArray();
+		Arrays.sort(cells);
+		return cells;
+	}
+}
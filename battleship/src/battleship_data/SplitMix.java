@@ -0,0 +1,20 @@
+/*
+ * Name: SplitMix.java
+ * Description: The finalizer of the SplitMix64 generator, which spreads the bits of a number
+ * over all 64 bits, so that consecutive seeds, ids or coordinates give unrelated values.
+ * Shared by the seeding of simulations and layout generators, hash tables and hashes.
+ */
+
+package battleship_data;
+
+public final class SplitMix {
+
+	private SplitMix() {
+	}
+
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,204 @@
+/*
+ * Name: GameClient.java
+ * Description: A blocking client of GameServer, to play or test over the network.
+ * Requests are written at once; receive() waits for the next message from the server and
+ * keeps its fields until the next one, so that a client reading many shots allocates nothing.
+ * A client is used by one thread at a time.
+ */
+
+package battleship_net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import battleship_data.Layout;
+import battleship_data.LayoutCodec;
+
+public class GameClient implements AutoCloseable {
+
+	static final int BUFFER_SIZE = 256; // Holds any frame but a large layout, for which the buffers grow
+
+	private final SocketChannel CHANNEL;
+	private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+	private ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE); // Between reads, the bytes not handled yet
+
+	// Fields of the last message received; only those of its type are set
+	private int type;
+	private long gameId;
+	private int player;
+	private int boardSizeX;
+	private int boardSizeY;
+	private int noOfShips;
+	private int coordX;
+	private int coordY;
+	private int result;
+	private int shipsLeft;
+	private final int[] SCORES = new int[2];
+	private int errorCode;
+
+	public GameClient(InetSocketAddress server) throws IOException {
+		CHANNEL = SocketChannel.open(server);
+		CHANNEL.socket().setTcpNoDelay(true);
+		in.flip();
+	}
+
+	// Ask for a game on a random board; the answer is a GAME message for player 1
+	public void newGame(int sizeX, int sizeY, int playerBonus) throws IOException {
+		int start = Protocol.beginFrame(out, Protocol.NEW_GAME);
+		out.putInt(sizeX).putInt(sizeY).put((byte) playerBonus);
+		send(start);
+	}
+
+	// Ask for a game on the given layout
+	public void newGame(Layout layout, int playerBonus) throws IOException {
+		int size = Protocol.LENGTH_SIZE + 2 + LayoutCodec.encodedSize(layout);
+		if (size > out.capacity()) {
+			out = ByteBuffer.allocate(size);
+		}
+		int start = Protocol.beginFrame(out, Protocol.NEW_LAYOUT_GAME);
+		out.put((byte) playerBonus);
+		LayoutCodec.encode(layout, out);
+		send(start);
+	}
+
+	// Join a game as player 2; the answer is a GAME message, and player 1 gets STARTED
+	public void join(long gameId) throws IOException {
+		int start = Protocol.beginFrame(out, Protocol.JOIN);
+		out.putLong(gameId);
+		send(start);
+	}
+
+	// Fire at a coordinate; both players get a SHOT message
+	public void fire(int coordX, int coordY) throws IOException {
+		int start = Protocol.beginFrame(out, Protocol.FIRE);
+		out.putInt(coordX).putInt(coordY);
+		send(start);
+	}
+
+	public void leave() throws IOException {
+		send(Protocol.beginFrame(out, Protocol.LEAVE));
+	}
+
+	private void send(int start) throws IOException {
+		Protocol.endFrame(out, start);
+		out.flip();
+		while (out.hasRemaining()) {
+			CHANNEL.write(out);
+		}
+		out.clear();
+	}
+
+	// Wait for the next message and return its type
+	public int receive() throws IOException {
+		int length;
+		while ((length = Protocol.frameLength(in)) == 0) {
+			int needed = in.remaining() < Protocol.LENGTH_SIZE ? BUFFER_SIZE
+					: Protocol.LENGTH_SIZE + (in.getShort(in.position()) & 0xFFFF);
+			if (needed > in.capacity()) {
+				in = ByteBuffer.allocate(needed).put(in);
+			} else {
+				in.compact();
+			}
+			int read = CHANNEL.read(in);
+			in.flip();
+			if (read < 0) {
+				throw new EOFException("The server closed the connection.");
+			}
+		}
+		int end = in.position() + length;
+		in.position(in.position() + Protocol.LENGTH_SIZE);
+		type = in.get();
+		switch (type) {
+		case Protocol.GAME: {
+			gameId = in.getLong();
+			player = in.get();
+			boardSizeX = in.getInt();
+			boardSizeY = in.getInt();
+			noOfShips = in.getInt();
+			break;
+		}
+		case Protocol.SHOT: {
+			coordX = in.getInt();
+			coordY = in.getInt();
+			result = in.getInt();
+			shipsLeft = in.getInt();
+			SCORES[0] = in.getInt();
+			SCORES[1] = in.getInt();
+			break;
+		}
+		case Protocol.ERROR: {
+			errorCode = in.get();
+			break;
+		}
+		}
+		in.position(end);
+		return type;
+	}
+
+	// Wait for a message of the given type; an ERROR or a message of another type throws
+	public void expect(int expected) throws IOException {
+		int received = receive();
+		if (received != expected) {
+			throw new IOException(received == Protocol.ERROR ? "Server error " + errorCode + "."
+					: "Unexpected message " + received + ", expected " + expected + ".");
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		CHANNEL.close();
+	}
+
+	public int getType() {
+		return type;
+	}
+
+	public long getGameId() {
+		return gameId;
+	}
+
+	// The player number of this client in its game
+	public int getPlayer() {
+		return player;
+	}
+
+	public int getBoardSizeX() {
+		return boardSizeX;
+	}
+
+	public int getBoardSizeY() {
+		return boardSizeY;
+	}
+
+	public int getNumberOfShips() {
+		return noOfShips;
+	}
+
+	public int getCoordX() {
+		return coordX;
+	}
+
+	public int getCoordY() {
+		return coordY;
+	}
+
+	// The packed ShotResult of the last shot
+	public int getResult() {
+		return result;
+	}
+
+	public int getShipsLeft() {
+		return shipsLeft;
+	}
+
+	public int getScore(int player) {
+		return SCORES[player - 1];
+	}
+
+	public int getErrorCode() {
+		return errorCode;
+	}
+}
@@ -0,0 +1,519 @@
+/*
+ * Name: GameServer.java
+ * Description: Host two-player games over TCP in the binary protocol of Protocol.
+ * One thread runs a non-blocking selector loop over all connections and owns every game,
+ * so games need no locks and a move is handled without waiting for anything: the frame is
+ * read, the shot fired through a GameEngine (scored as in the game window), and the answer
+ * written to both players before the next connection is served.
+ *
+ * Memory per game is the board, its engine and two connections. A connection holds no
+ * buffer of its own while it is idle: input is read into one buffer shared by the loop,
+ * and only a frame split between two reads, or output the socket would not take at once,
+ * is copied into a buffer of the connection until it is complete or written.
+ * Boards are built on the loop, so their size is capped where a random board takes some tens
+ * of microseconds and some tens of KB. The cells of all waiting and active games together are
+ * capped by a budget, checked before a board is built; beyond it new games get SERVER_FULL.
+ */
+
+package battleship_net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import battleship_data.Board;
+import battleship_data.GameEngine;
+import battleship_data.Layout;
+import battleship_data.LayoutCodec;
+import battleship_data.ShotResult;
+
+public class GameServer implements AutoCloseable {
+
+	static final int READ_BUFFER_SIZE = 1 << 16; // Shared by all connections
+	static final int MAX_PENDING_OUTPUT = 1 << 20; // A client this far behind in reading is dropped
+	static final int MAX_HOSTED_BOARD_SIZE = 100; // Largest width and height of a hosted board, random or uploaded
+	static final long DEFAULT_CELL_BUDGET = 1L << 26; // Cells of all games at once; about 150 MB of boards
+
+	private final Selector SELECTOR;
+	private final ServerSocketChannel SERVER;
+	private final ByteBuffer READ_BUFFER = ByteBuffer.allocateDirect(READ_BUFFER_SIZE + Protocol.LENGTH_SIZE
+			+ Protocol.MAX_FRAME);
+	private final ByteBuffer FRAME = ByteBuffer.allocate(Protocol.LENGTH_SIZE + Protocol.MAX_FRAME);
+	private final Map<Long, Match> WAITING = new HashMap<Long, Match>(); // Games without player 2, by id
+	private final ArrayDeque<Connection> DROPPED = new ArrayDeque<Connection>(); // Closed, games not ended yet
+	private final Thread LOOP;
+	private final long CELL_BUDGET; // Cells the boards of all games may have together
+
+	private volatile boolean closing;
+	private long lastGameId;
+	private int connections;
+	private int matches; // Games being played or waiting
+	private long hostedCells; // Cells of the boards of those games
+	private long shots;
+
+	// Listen on the address; port 0 picks a free port. The server runs after start().
+	public GameServer(InetSocketAddress address) throws IOException {
+		this(address, DEFAULT_CELL_BUDGET);
+	}
+
+	// Host games whose boards have at most cellBudget cells together
+	public GameServer(InetSocketAddress address, long cellBudget) throws IOException {
+		CELL_BUDGET = cellBudget;
+		SELECTOR = Selector.open();
+		SERVER = ServerSocketChannel.open();
+		try {
+			SERVER.bind(address, 1024);
+			SERVER.configureBlocking(false);
+			SERVER.register(SELECTOR, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			SERVER.close();
+			SELECTOR.close();
+			throw e;
+		}
+		LOOP = new Thread(this::loop, "game-server");
+	}
+
+	public void start() {
+		LOOP.start();
+	}
+
+	public int getPort() {
+		return SERVER.socket().getLocalPort();
+	}
+
+	// Disconnect every client and stop the loop
+	@Override
+	public void close() {
+		closing = true;
+		SELECTOR.wakeup();
+		try {
+			LOOP.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Counters of the loop, for monitoring; read without synchronization, so only roughly current
+	public int getConnections() {
+		return connections;
+	}
+
+	public int getMatches() {
+		return matches;
+	}
+
+	public long getHostedCells() {
+		return hostedCells;
+	}
+
+	public long getShots() {
+		return shots;
+	}
+
+	private void loop() {
+		try {
+			while (!closing) {
+				SELECTOR.select();
+				Iterator<SelectionKey> keys = SELECTOR.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						try {
+							accept();
+						} catch (IOException e) {
+							e.printStackTrace(); // E.g. out of file descriptors; the client is refused
+						}
+						continue;
+					}
+					Connection connection = (Connection) key.attachment();
+					try {
+						if (key.isReadable()) {
+							read(connection);
+						}
+						if (key.isValid() && key.isWritable()) {
+							flush(connection);
+						}
+					} catch (IOException e) {
+						drop(connection); // Reset by the client
+					}
+					endDropped();
+				}
+			}
+		} catch (IOException | ClosedSelectorException e) {
+			e.printStackTrace();
+		} finally {
+			for (SelectionKey key : SELECTOR.keys()) {
+				if (key.attachment() instanceof Connection) {
+					drop((Connection) key.attachment());
+				}
+			}
+			DROPPED.clear();
+			try {
+				SERVER.close();
+				SELECTOR.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel;
+		while ((channel = SERVER.accept()) != null) {
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				Connection connection = new Connection(channel);
+				connection.key = channel.register(SELECTOR, SelectionKey.OP_READ, connection);
+				connections++;
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+		}
+	}
+
+	// Read what arrived and handle every complete frame
+	private void read(Connection connection) throws IOException {
+		ByteBuffer in = READ_BUFFER;
+		in.clear();
+		if (connection.input != null) {
+			// Continue the frame split by the last read
+			connection.input.flip();
+			in.put(connection.input);
+			connection.input = null;
+		}
+		in.limit(in.position() + READ_BUFFER_SIZE);
+		int read = connection.CHANNEL.read(in);
+		in.flip();
+
+		int length;
+		while ((length = Protocol.frameLength(in)) > 0 && connection.key.isValid()) {
+			int end = in.position() + length;
+			ByteBuffer frame = in.duplicate();
+			frame.limit(end).position(in.position() + Protocol.LENGTH_SIZE);
+			in.position(end);
+			handle(connection, frame);
+		}
+		if (read < 0) {
+			drop(connection);
+		} else if (in.hasRemaining() && connection.key.isValid()) {
+			connection.input = ByteBuffer.allocate(in.remaining());
+			connection.input.put(in);
+		}
+	}
+
+	private static boolean isHostedSize(int sizeX, int sizeY) {
+		return sizeX >= Board.MIN_BOARD_SIZE && sizeY >= Board.MIN_BOARD_SIZE && sizeX <= MAX_HOSTED_BOARD_SIZE
+				&& sizeY <= MAX_HOSTED_BOARD_SIZE;
+	}
+
+	private void handle(Connection connection, ByteBuffer frame) {
+		if (!frame.hasRemaining()) {
+			error(connection, Protocol.BAD_REQUEST);
+			return;
+		}
+		int type = frame.get();
+		try {
+			switch (type) {
+			case Protocol.NEW_GAME: {
+				int sizeX = frame.getInt();
+				int sizeY = frame.getInt();
+				int bonus = frame.get();
+				if (!isHostedSize(sizeX, sizeY)) {
+					error(connection, Protocol.INVALID_LAYOUT);
+				} else if (check(connection, frame, bonus)) {
+					create(connection, sizeX, sizeY, () -> new Board(sizeX, sizeY), bonus);
+				}
+				break;
+			}
+			case Protocol.NEW_LAYOUT_GAME: {
+				int bonus = frame.get();
+				Layout layout = LayoutCodec.decode(frame);
+				// A layout without ships would be over before the first shot
+				if (!isHostedSize(layout.getBoardSizeX(), layout.getBoardSizeY()) || layout.getNumberOfShips() == 0) {
+					error(connection, Protocol.INVALID_LAYOUT);
+				} else if (check(connection, frame, bonus)) {
+					create(connection, layout.getBoardSizeX(), layout.getBoardSizeY(), () -> new Board(layout), bonus);
+				}
+				break;
+			}
+			case Protocol.JOIN: {
+				long gameId = frame.getLong();
+				if (check(connection, frame, 0)) {
+					join(connection, gameId);
+				}
+				break;
+			}
+			case Protocol.FIRE: {
+				int coordX = frame.getInt();
+				int coordY = frame.getInt();
+				if (frame.hasRemaining()) {
+					error(connection, Protocol.BAD_REQUEST);
+				} else {
+					fire(connection, coordX, coordY);
+				}
+				break;
+			}
+			case Protocol.LEAVE: {
+				if (connection.match == null) {
+					error(connection, Protocol.NOT_IN_GAME);
+				} else {
+					end(connection.match, connection);
+				}
+				break;
+			}
+			default: {
+				error(connection, Protocol.BAD_REQUEST);
+			}
+			}
+		} catch (IllegalArgumentException e) {
+			// An invalid layout, or ships that do not fit the board
+			error(connection, Protocol.INVALID_LAYOUT);
+		} catch (RuntimeException e) {
+			// A frame too short for its fields
+			error(connection, Protocol.BAD_REQUEST);
+		}
+	}
+
+	// Checks shared by the requests that start a game
+	private boolean check(Connection connection, ByteBuffer frame, int bonus) {
+		if (frame.hasRemaining() || (bonus != 0 && bonus != 5)) {
+			error(connection, Protocol.BAD_REQUEST);
+			return false;
+		}
+		if (connection.match != null) {
+			error(connection, Protocol.IN_GAME);
+			return false;
+		}
+		return true;
+	}
+
+	// Start a game on a board of the given size, built only if its cells fit in the budget
+	private void create(Connection connection, int sizeX, int sizeY, Supplier<Board> builder, int bonus) {
+		long cells = (long) sizeX * sizeY;
+		if (hostedCells + cells > CELL_BUDGET) {
+			error(connection, Protocol.SERVER_FULL);
+			return;
+		}
+		Board board = builder.get(); // Throws IllegalArgumentException if the ships do not fit
+		hostedCells += cells;
+		Match match = new Match(++lastGameId, new GameEngine(board, bonus), connection);
+		connection.match = match;
+		WAITING.put(match.ID, match);
+		matches++;
+		sendGame(connection, match, 1);
+	}
+
+	private void join(Connection connection, long gameId) {
+		Match match = WAITING.remove(gameId);
+		if (match == null) {
+			error(connection, Protocol.NO_SUCH_GAME);
+			return;
+		}
+		match.player2 = connection;
+		connection.match = match;
+		sendGame(connection, match, 2);
+		int start = Protocol.beginFrame(FRAME, Protocol.STARTED);
+		send(match.PLAYER1, start);
+	}
+
+	private void fire(Connection connection, int coordX, int coordY) {
+		Match match = connection.match;
+		if (match == null) {
+			error(connection, Protocol.NOT_IN_GAME);
+			return;
+		}
+		if (match.player2 == null) {
+			error(connection, Protocol.NOT_STARTED);
+			return;
+		}
+		GameEngine engine = match.ENGINE;
+		Board board = engine.getBoard();
+		if (coordX < 0 || coordY < 0 || coordX >= board.getBoardSizeX() || coordY >= board.getBoardSizeY()) {
+			error(connection, Protocol.BAD_REQUEST);
+			return;
+		}
+		if (match.player(engine.getCurrentPlayer()) != connection) {
+			error(connection, Protocol.NOT_YOUR_TURN);
+			return;
+		}
+
+		int result = engine.fire(coordX, coordY);
+		shots++;
+		int start = Protocol.beginFrame(FRAME, Protocol.SHOT);
+		FRAME.putInt(coordX).putInt(coordY).putInt(result).putInt(engine.getNumberOfShipsLeft())
+				.putInt(engine.getScoreBoard().getScore(1)).putInt(engine.getScoreBoard().getScore(2));
+		Protocol.endFrame(FRAME, start);
+		FRAME.flip();
+		write(match.PLAYER1, FRAME.duplicate());
+		write(match.player2, FRAME);
+		FRAME.clear();
+
+		if (ShotResult.isGameOver(result)) {
+			release(match);
+		}
+	}
+
+	// End a game because a player left it or disconnected; the other player is told
+	private void end(Match match, Connection leaving) {
+		WAITING.remove(match.ID);
+		Connection other = match.PLAYER1 == leaving ? match.player2 : match.PLAYER1;
+		release(match);
+		if (other != null) {
+			int start = Protocol.beginFrame(FRAME, Protocol.OPPONENT_LEFT);
+			send(other, start);
+		}
+	}
+
+	private void release(Match match) {
+		match.PLAYER1.match = null;
+		if (match.player2 != null) {
+			match.player2.match = null;
+		}
+		matches--;
+		Board board = match.ENGINE.getBoard();
+		hostedCells -= (long) board.getBoardSizeX() * board.getBoardSizeY();
+	}
+
+	private void sendGame(Connection connection, Match match, int player) {
+		Board board = match.ENGINE.getBoard();
+		int start = Protocol.beginFrame(FRAME, Protocol.GAME);
+		FRAME.putLong(match.ID).put((byte) player).putInt(board.getBoardSizeX()).putInt(board.getBoardSizeY())
+				.putInt(board.getNumberOfShips());
+		send(connection, start);
+	}
+
+	private void error(Connection connection, int code) {
+		int start = Protocol.beginFrame(FRAME, Protocol.ERROR);
+		FRAME.put((byte) code);
+		send(connection, start);
+	}
+
+	// Finish the frame begun in FRAME and write it to the connection
+	private void send(Connection connection, int start) {
+		Protocol.endFrame(FRAME, start);
+		FRAME.flip();
+		write(connection, FRAME);
+		FRAME.clear();
+	}
+
+	// Write now if the socket takes it, otherwise keep the rest until the socket is writable
+	private void write(Connection connection, ByteBuffer bytes) {
+		if (!connection.key.isValid()) {
+			return;
+		}
+		try {
+			if (connection.output == null) {
+				connection.CHANNEL.write(bytes);
+				if (!bytes.hasRemaining()) {
+					return;
+				}
+				connection.output = ByteBuffer.allocate(Math.max(256, bytes.remaining()));
+				connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			}
+			if (connection.output.remaining() < bytes.remaining()) {
+				int needed = connection.output.position() + bytes.remaining();
+				if (needed > MAX_PENDING_OUTPUT) {
+					drop(connection); // Not reading its answers
+					return;
+				}
+				ByteBuffer larger = ByteBuffer.allocate(Math.max(needed, 2 * connection.output.capacity()));
+				connection.output.flip();
+				larger.put(connection.output);
+				connection.output = larger;
+			}
+			connection.output.put(bytes);
+		} catch (IOException e) {
+			drop(connection);
+		}
+	}
+
+	// Write the output kept for the connection, and stop waiting for the socket once it is all written
+	private void flush(Connection connection) throws IOException {
+		ByteBuffer output = connection.output;
+		if (output == null) {
+			return;
+		}
+		output.flip();
+		connection.CHANNEL.write(output);
+		if (output.hasRemaining()) {
+			output.compact();
+		} else {
+			connection.output = null;
+			connection.key.interestOps(SelectionKey.OP_READ);
+		}
+	}
+
+	// Close the connection. Its game is ended by endDropped(), as the connection may be dropped
+	// while a frame for the other player is being written.
+	private void drop(Connection connection) {
+		if (!connection.key.isValid()) {
+			return;
+		}
+		connection.key.cancel();
+		try {
+			connection.CHANNEL.close();
+		} catch (IOException e) {
+			// Closing anyway
+		}
+		connections--;
+		DROPPED.add(connection);
+	}
+
+	private void endDropped() {
+		Connection connection;
+		while ((connection = DROPPED.poll()) != null) {
+			if (connection.match != null) {
+				end(connection.match, connection);
+			}
+		}
+	}
+
+	// A client; only used by the loop thread
+	private static final class Connection {
+
+		private final SocketChannel CHANNEL;
+		private SelectionKey key;
+		private Match match; // The game played; null if none
+		private ByteBuffer input; // Start of a frame not read completely; null if none
+		private ByteBuffer output; // Written to, not yet taken by the socket; null if none
+
+		Connection(SocketChannel channel) {
+			this.CHANNEL = channel;
+		}
+	}
+
+	// A game and its players; only used by the loop thread
+	private static final class Match {
+
+		private final long ID;
+		private final GameEngine ENGINE;
+		private final Connection PLAYER1;
+		private Connection player2; // null until someone joins
+
+		Match(long id, GameEngine engine, Connection player1) {
+			this.ID = id;
+			this.ENGINE = engine;
+			this.PLAYER1 = player1;
+		}
+
+		Connection player(int playerNo) {
+			return playerNo == 1 ? PLAYER1 : player2;
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Name: Protocol.java
+ * Description: The binary protocol between GameServer and GameClient.
+ * Every message is a frame: a 2-byte length of the rest of the frame, a 1-byte message type,
+ * then fixed-size big-endian fields, except for the layout of NEW_LAYOUT_GAME, which is in
+ * the encoding of LayoutCodec. A shot takes a 11-byte request and a 27-byte answer.
+ *
+ * Client to server:
+ *   NEW_GAME         sizeX int, sizeY int, bonus byte   A game on a random board; the sender is player 1
+ *   NEW_LAYOUT_GAME  bonus byte, layout                 A game on the uploaded layout
+ *   JOIN             gameId long                        Join a game as player 2
+ *   FIRE             x int, y int                       Fire for the sender, who must be on turn
+ *   LEAVE                                               Give up the current game
+ * Server to client:
+ *   GAME             gameId long, player byte, sizeX int, sizeY int, ships int
+ *   STARTED                                             Player 2 joined; player 1 fires first
+ *   SHOT             x int, y int, result int, shipsLeft int, score 1 int, score 2 int
+ *   OPPONENT_LEFT                                       The game is over without a winner
+ *   ERROR            code byte
+ * The result of a shot is packed by ShotResult and scored as in the game window. A shot
+ * ending the game has the outcome GAME_OVER, after which both players can start or join
+ * another game on the same connection.
+ */
+
+package battleship_net;
+
+import java.nio.ByteBuffer;
+
+public final class Protocol {
+
+	public static final int LENGTH_SIZE = 2; // Bytes of the frame length
+	public static final int MAX_FRAME = 0xFFFF; // Largest frame after the length
+
+	// Client to server
+	public static final int NEW_GAME = 1;
+	public static final int NEW_LAYOUT_GAME = 2;
+	public static final int JOIN = 3;
+	public static final int FIRE = 4;
+	public static final int LEAVE = 5;
+
+	// Server to client
+	public static final int GAME = 0x41;
+	public static final int STARTED = 0x42;
+	public static final int SHOT = 0x43;
+	public static final int OPPONENT_LEFT = 0x44;
+	public static final int ERROR = 0x45;
+
+	// Error codes
+	public static final int BAD_REQUEST = 1; // Unknown message, wrong length or coordinate off the board
+	public static final int NO_SUCH_GAME = 2; // Not waiting for a player, finished, or never existed
+	public static final int IN_GAME = 3; // The sender already plays a game
+	public static final int NOT_IN_GAME = 4;
+	public static final int NOT_STARTED = 5; // Player 2 has not joined yet
+	public static final int NOT_YOUR_TURN = 6;
+	public static final int INVALID_LAYOUT = 7; // The layout or board size is not playable
+	public static final int SERVER_FULL = 8; // The server hosts as many board cells as it may; try later
+
+	private Protocol() {
+	}
+
+	// Start a frame of the given type at the position of the buffer; finish it with endFrame()
+	public static int beginFrame(ByteBuffer out, int type) {
+		int start = out.position();
+		out.putShort((short) 0).put((byte) type);
+		return start;
+	}
+
+	// Fill in the length of the frame begun at start
+	public static void endFrame(ByteBuffer out, int start) {
+		int length = out.position() - start - LENGTH_SIZE;
+		if (length > MAX_FRAME) {
+			throw new IllegalArgumentException("Frame too long: " + length + " bytes.");
+		}
+		out.putShort(start, (short) length);
+	}
+
+	// Length of the complete frame at the position of the buffer, length included; 0 if
+	// the buffer does not hold all of it yet
+	public static int frameLength(ByteBuffer in) {
+		if (in.remaining() < LENGTH_SIZE) {
+			return 0;
+		}
+		int length = LENGTH_SIZE + (in.getShort(in.position()) & 0xFFFF);
+		return in.remaining() < length ? 0 : length;
+	}
+}
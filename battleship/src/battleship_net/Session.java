@@ -0,0 +1,141 @@
+/*
+ * Name: Session.java
+ * Description: A game hosted in a SessionRegistry: its engine, which keeps the board, the
+ * score board and the player turn, and the bookkeeping for eviction.
+ * Every access to the game holds the lock of the stripe of the session, so that players
+ * firing from different threads take turns, while sessions on other stripes go on in
+ * parallel. Board, ScoreBoard and GameEngine are not thread-safe themselves and are never
+ * handed out.
+ */
+
+package battleship_net;
+
+import battleship_data.Board;
+import battleship_data.GameEngine;
+import battleship_data.GameSnapshot;
+import battleship_data.ShotResult;
+
+public final class Session {
+
+	private final long ID;
+	private final GameEngine ENGINE; // Guarded by LOCK
+	private final Object LOCK; // The stripe of the session, shared with other sessions
+	private final SessionRegistry REGISTRY;
+
+	private volatile long lastTick; // Tick of the registry at the last access
+	private volatile boolean finished; // The game is over; evicted at the next tick
+	private boolean ended; // Evicted or removed; guarded by LOCK
+
+	Session(long id, GameEngine engine, Object lock, SessionRegistry registry, long tick) {
+		this.ID = id;
+		this.ENGINE = engine;
+		this.LOCK = lock;
+		this.REGISTRY = registry;
+		this.lastTick = tick;
+	}
+
+	public long getId() {
+		return ID;
+	}
+
+	// Fire at a coordinate for the player, who must be on turn. Returns the packed ShotResult.
+	// Throws IllegalStateException if it is the other player's turn, or the session ended.
+	public int fire(int player, int coordX, int coordY) {
+		int result;
+		synchronized (LOCK) {
+			checkOpen();
+			Board board = ENGINE.getBoard();
+			if (coordX < 0 || coordY < 0 || coordX >= board.getBoardSizeX() || coordY >= board.getBoardSizeY()) {
+				throw new IllegalArgumentException("Coordinate " + coordX + "," + coordY + " is off the board.");
+			}
+			if (ENGINE.getCurrentPlayer() != player) {
+				throw new IllegalStateException("It is not the turn of player " + player + ".");
+			}
+			result = ENGINE.fire(coordX, coordY);
+		}
+		touch();
+		if (ShotResult.isGameOver(result)) {
+			finished = true;
+			REGISTRY.finished(this);
+		}
+		return result;
+	}
+
+	public int getCurrentPlayer() {
+		synchronized (LOCK) {
+			return ENGINE.getCurrentPlayer();
+		}
+	}
+
+	public int getScore(int player) {
+		synchronized (LOCK) {
+			return ENGINE.getScoreBoard().getScore(player);
+		}
+	}
+
+	public int getNumberOfShipsLeft() {
+		synchronized (LOCK) {
+			return ENGINE.getNumberOfShipsLeft();
+		}
+	}
+
+	public int getBoardSizeX() {
+		return ENGINE.getBoard().getBoardSizeX(); // Never changes
+	}
+
+	public int getBoardSizeY() {
+		return ENGINE.getBoard().getBoardSizeY();
+	}
+
+	public boolean isGameOver() {
+		return finished;
+	}
+
+	// True once the session was evicted or removed; it cannot be played any more
+	public boolean isEnded() {
+		synchronized (LOCK) {
+			return ended;
+		}
+	}
+
+	// The whole game as it is now, e.g. to move it to another node
+	public GameSnapshot snapshot(int options) {
+		synchronized (LOCK) {
+			checkOpen();
+			return new GameSnapshot(ENGINE, options);
+		}
+	}
+
+	// Keep the session from being evicted as idle; a plain write to this session only
+	void touch() {
+		long tick = REGISTRY.getTick();
+		if (lastTick != tick) {
+			lastTick = tick;
+		}
+	}
+
+	long getLastTick() {
+		return lastTick;
+	}
+
+	boolean isFinished() {
+		return finished;
+	}
+
+	// Mark the session ended; false if it already was
+	boolean end() {
+		synchronized (LOCK) {
+			if (ended) {
+				return false;
+			}
+			ended = true;
+			return true;
+		}
+	}
+
+	private void checkOpen() {
+		if (ended) {
+			throw new IllegalStateException("Session " + ID + " has ended.");
+		}
+	}
+}
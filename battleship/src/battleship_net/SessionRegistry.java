@@ -0,0 +1,195 @@
+/*
+ * Name: SessionRegistry.java
+ * Description: Host many games in one process, each in a Session found by its id.
+ * Lookups go to a ConcurrentHashMap and take no lock. A session is guarded by one lock of
+ * a fixed array of stripes, picked by its id, so two shots only wait for each other when
+ * their sessions share a stripe, and never for a global lock.
+ *
+ * Sessions idle longer than the timeout, or whose game is over, are evicted on a timing
+ * wheel: a ring of buckets, one per tick, each holding the sessions due at that tick.
+ * An access only records the current tick in the session; the session stays in its bucket.
+ * When the wheel reaches the bucket, a session that was used meanwhile is put back in the
+ * bucket of its new deadline, and any other is evicted. Eviction therefore costs nothing
+ * per move, and each tick only visits the sessions due then.
+ */
+
+package battleship_net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import battleship_data.Board;
+import battleship_data.GameEngine;
+import battleship_data.GameSnapshot;
+import battleship_data.SplitMix;
+
+public class SessionRegistry implements AutoCloseable {
+
+	static final int STRIPES = 256; // Locks shared by the sessions; a power of two
+	static final int WHEEL_SIZE = 512; // Buckets of the timing wheel; a power of two
+	static final long DEFAULT_TICK_MILLIS = 1000;
+
+	private final ConcurrentHashMap<Long, Session> SESSIONS = new ConcurrentHashMap<Long, Session>();
+	private final Object[] LOCKS = new Object[STRIPES];
+	private final List<List<Session>> WHEEL = new ArrayList<List<Session>>(WHEEL_SIZE); // Each guarded by itself
+	private final AtomicLong LAST_ID = new AtomicLong();
+	private final long IDLE_TICKS; // Ticks a session may go unused
+	private final long TICK_MILLIS;
+	private final Consumer<Session> ON_EVICT; // Told about every evicted session; may be null
+	private final Thread TICKER;
+
+	private volatile long tick; // Advanced by advance() only
+	private volatile boolean closing;
+
+	// Evict sessions idle for the timeout, checked once a second
+	public SessionRegistry(long idleTimeout, TimeUnit unit, Consumer<Session> onEvict) {
+		this(idleTimeout, unit, DEFAULT_TICK_MILLIS, onEvict);
+	}
+
+	// The timeout is rounded up to whole ticks
+	public SessionRegistry(long idleTimeout, TimeUnit unit, long tickMillis, Consumer<Session> onEvict) {
+		this.TICK_MILLIS = tickMillis;
+		this.IDLE_TICKS = Math.max(1, (unit.toMillis(idleTimeout) + tickMillis - 1) / tickMillis);
+		this.ON_EVICT = onEvict;
+		for (int i = 0; i < STRIPES; i++) {
+			LOCKS[i] = new Object();
+		}
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			WHEEL.add(new ArrayList<Session>());
+		}
+		this.TICKER = new Thread(this::tickLoop, "session-evictor");
+		this.TICKER.setDaemon(true);
+	}
+
+	// Advance the wheel once per tick on a thread of its own; without it, call advance()
+	public void start() {
+		TICKER.start();
+	}
+
+	@Override
+	public void close() {
+		closing = true;
+		TICKER.interrupt();
+	}
+
+	// A new session on the board
+	public Session create(Board board, int playerBonus) {
+		return add(new GameEngine(board, playerBonus));
+	}
+
+	// Host a saved game again, e.g. one moved from another node
+	public Session restore(GameSnapshot snapshot) {
+		return add(snapshot.restore());
+	}
+
+	private Session add(GameEngine engine) {
+		long id = LAST_ID.incrementAndGet();
+		long now = tick;
+		Session session = new Session(id, engine, LOCKS[stripe(id)], this, now);
+		SESSIONS.put(id, session);
+		schedule(session, now + IDLE_TICKS);
+		return session;
+	}
+
+	// The session with the id, or null if there is none or it was evicted. Counts as an access.
+	public Session get(long id) {
+		Session session = SESSIONS.get(id);
+		if (session != null) {
+			session.touch();
+		}
+		return session;
+	}
+
+	// End a session now, e.g. because a player left
+	public boolean remove(long id) {
+		Session session = SESSIONS.remove(id);
+		return session != null && session.end();
+	}
+
+	public int size() {
+		return SESSIONS.size();
+	}
+
+	long getTick() {
+		return tick;
+	}
+
+	// Called by a session whose game just ended: evict it at the next tick. Any thread may call
+	// this while the wheel advances; schedule() moves it on if that tick is already drained.
+	void finished(Session session) {
+		schedule(session, tick + 1);
+	}
+
+	// Move the wheel on by one tick, and evict the sessions due that are idle or finished.
+	// Only one thread may advance the wheel. Returns the number of sessions evicted.
+	public int advance() {
+		long now = tick + 1;
+		tick = now;
+		List<Session> bucket = WHEEL.get((int) now & (WHEEL_SIZE - 1));
+		Session[] due;
+		synchronized (bucket) {
+			due = bucket.toArray(new Session[0]);
+			bucket.clear();
+		}
+
+		int evicted = 0;
+		for (Session session : due) {
+			if (session.isEnded()) {
+				continue; // Removed, or due twice
+			}
+			long deadline = session.getLastTick() + IDLE_TICKS;
+			if (session.isFinished() || deadline <= now) {
+				if (SESSIONS.remove(session.getId(), session) && session.end()) {
+					evicted++;
+					if (ON_EVICT != null) {
+						ON_EVICT.accept(session);
+					}
+				}
+			} else {
+				schedule(session, deadline); // Used since; a deadline beyond the wheel comes round again
+			}
+		}
+		return evicted;
+	}
+
+	// Put the session in the bucket of a tick. The tick may have been read just before
+	// advance() moved on and drained its bucket; then the session would wait a whole turn of
+	// the wheel, so it goes to the bucket of the next tick instead. advance() sets the tick
+	// before it locks the bucket to drain it, so the check under the lock sees the new tick.
+	private void schedule(Session session, long dueTick) {
+		while (true) {
+			List<Session> bucket = WHEEL.get((int) dueTick & (WHEEL_SIZE - 1));
+			synchronized (bucket) {
+				if (dueTick > tick) {
+					bucket.add(session);
+					return;
+				}
+			}
+			dueTick = tick + 1;
+		}
+	}
+
+	private void tickLoop() {
+		while (!closing) {
+			try {
+				Thread.sleep(TICK_MILLIS);
+			} catch (InterruptedException e) {
+				continue; // Closing
+			}
+			try {
+				advance();
+			} catch (RuntimeException e) {
+				e.printStackTrace(); // Thrown by the eviction listener; keep evicting
+			}
+		}
+	}
+
+	// Spread neighbouring ids over the stripes
+	private static int stripe(long id) {
+		return (int) SplitMix.mix(id) & (STRIPES - 1);
+	}
+}
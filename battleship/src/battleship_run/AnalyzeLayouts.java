@@ -0,0 +1,62 @@
+/*
+ * Name: AnalyzeLayouts.java
+ * Description: Measure the difficulty of layout files from the command line and reject those
+ * a probability shooter clears in fewer than the given mean number of shots, or that are invalid.
+ * Usage: AnalyzeLayouts <games> <minShots> <layout file>...
+ * Exits with status 2 if any layout was rejected, so it can guard a rotation.
+ * The games of a layout are seeded from the layout itself, so its verdict does not depend on
+ * the other files given or their order.
+ */
+
+package battleship_run;
+
+import java.io.File;
+import java.io.IOException;
+
+import battleship_ai.ProbabilityShooter;
+import battleship_data.Layout;
+import battleship_data.LayoutGenerator;
+import battleship_data.LayoutParser;
+import battleship_sim.DifficultyAnalyzer;
+import battleship_sim.DifficultyReport;
+
+public class AnalyzeLayouts {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: AnalyzeLayouts <games> <minShots> <layout file>...");
+			System.exit(1);
+		}
+
+		long games = Long.parseLong(args[0]);
+		double minShots = Double.parseDouble(args[1]);
+		int rejected = 0;
+
+		for (int i = 2; i < args.length; i++) {
+			Layout layout;
+			try {
+				layout = LayoutParser.parse(new File(args[i]));
+			} catch (IllegalArgumentException e) {
+				rejected++;
+				System.out.println(args[i] + ": REJECTED, " + e.getMessage());
+				System.out.println();
+				continue;
+			}
+			long start = System.nanoTime();
+			DifficultyReport report = new DifficultyAnalyzer(layout, LayoutGenerator.canonicalHash(layout),
+					ProbabilityShooter::new).analyze(games);
+			double seconds = (System.nanoTime() - start) / 1e9;
+
+			boolean easy = report.getExpectedShots() < minShots;
+			if (easy) {
+				rejected++;
+			}
+			System.out.println(args[i] + (easy ? ": REJECTED, too easy" : ": accepted"));
+			System.out.print(report);
+			System.out.printf("%.2f s%n%n", seconds);
+		}
+
+		if (rejected > 0) {
+			System.exit(2);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Name: GenerateLayouts.java
+ * Description: Generate distinct random layouts from the command line, e.g. for a tournament.
+ * Usage: GenerateLayouts <sizeX> <sizeY> <count> <output> [seed] [corpus|text]
+ * A corpus is one binary file for RunSimulation and the like; text writes a directory of
+ * layout files as the game reads them, for square boards only.
+ */
+
+package battleship_run;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import battleship_data.LayoutGenerator;
+
+public class GenerateLayouts {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 4) {
+			System.err.println("Usage: GenerateLayouts <sizeX> <sizeY> <count> <output> [seed] [corpus|text]");
+			System.exit(1);
+		}
+
+		int sizeX = Integer.parseInt(args[0]);
+		int sizeY = Integer.parseInt(args[1]);
+		long count = Long.parseLong(args[2]);
+		Path output = Paths.get(args[3]);
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : System.nanoTime();
+		String format = args.length > 5 ? args[5] : "corpus";
+
+		LayoutGenerator generator = new LayoutGenerator(sizeX, sizeY, seed);
+		long start = System.nanoTime();
+		long written;
+		switch (format) {
+		case "corpus": {
+			written = generator.writeCorpus(output, count);
+			break;
+		}
+		case "text": {
+			written = generator.writeLayoutFiles(output, count);
+			break;
+		}
+		default: {
+			throw new IllegalArgumentException("Unknown format: " + format);
+		}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d distinct layouts written, %d candidates, %d duplicates%n", written,
+				generator.getCandidates(), generator.getDuplicates());
+		System.out.printf("Seed %d, %.2f s, %.0f layouts/s%n", seed, seconds, written / seconds);
+		if (written < count) {
+			System.out.println("The board has fewer distinct layouts than asked for.");
+		}
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * Name: ReplayJournal.java
+ * Description: Replay a move journal from the command line and report any shot whose
+ * result differs from the one recorded.
+ * Usage: ReplayJournal [file]   (moves.journal by default)
+ */
+
+package battleship_run;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import battleship_data.JournalReplay;
+
+public class ReplayJournal {
+	public static void main(String[] args) throws IOException {
+		String file = args.length > 0 ? args[0] : "moves.journal";
+
+		long start = System.nanoTime();
+		JournalReplay replay = JournalReplay.replay(Paths.get(file));
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println(replay);
+		System.out.printf("%d bytes, %.3f s, %.0f shots/s%n", replay.getBytesRead(), seconds, replay.getShots() / seconds);
+		if (replay.getMismatches() > 0) {
+			System.exit(2);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Name: RunLoopbackGames.java
+ * Description: Play many games at once against a GameServer over loopback, and report the
+ * throughput and the time from a shot to its answer. Every game is played on an uploaded
+ * layout, and every answer is checked against a GameEngine playing the same shots locally.
+ * Usage: RunLoopbackGames <games> [threads] [boardSize] [port]
+ * Without a port, a server is started in this process.
+ */
+
+package battleship_run;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import battleship_ai.ProbabilityShooter;
+import battleship_ai.ShootingStrategy;
+import battleship_data.Board;
+import battleship_data.GameEngine;
+import battleship_data.ShotResult;
+import battleship_net.GameClient;
+import battleship_net.GameServer;
+import battleship_net.Protocol;
+import battleship_sim.Histogram;
+
+public class RunLoopbackGames {
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.err.println("Usage: RunLoopbackGames <games> [threads] [boardSize] [port]");
+			System.exit(1);
+		}
+		int games = Integer.parseInt(args[0]);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int size = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+		GameServer server = null;
+		InetSocketAddress address;
+		if (args.length > 3) {
+			address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[3]));
+		} else {
+			server = new GameServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			server.start();
+			address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+		}
+
+		Histogram latency = new Histogram(); // Microseconds from a shot to its answer
+		AtomicLong shots = new AtomicLong();
+		AtomicLong mismatches = new AtomicLong();
+		Thread[] players = new Thread[threads];
+		Exception[] failures = new Exception[threads];
+		long start = System.nanoTime();
+		for (int t = 0; t < threads; t++) {
+			int index = t;
+			int share = games / threads + (t < games % threads ? 1 : 0);
+			players[t] = new Thread(() -> {
+				try {
+					Histogram own = new Histogram();
+					long[] counts = play(address, share, size, new Random(index), own);
+					shots.addAndGet(counts[0]);
+					mismatches.addAndGet(counts[1]);
+					synchronized (latency) {
+						latency.merge(own);
+					}
+				} catch (Exception e) {
+					failures[index] = e;
+				}
+			}, "loopback-player-" + t);
+			players[t].start();
+		}
+		for (Thread player : players) {
+			player.join();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (server != null) {
+			server.close();
+		}
+
+		boolean failed = false;
+		for (Exception failure : failures) {
+			if (failure != null) {
+				failure.printStackTrace();
+				failed = true;
+			}
+		}
+		System.out.printf("%d games, %d shots in %.2f s: %.0f shots/s%n", games, shots.get(), seconds,
+				shots.get() / seconds);
+		System.out.printf("Answer time (us): mean %.1f, median %d, 99%% %d, max %d%n", latency.getMean(),
+				latency.getPercentile(0.5), latency.getPercentile(0.99), latency.getMax());
+		System.out.println("Answers differing from the local engine: " + mismatches.get());
+		if (failed || mismatches.get() > 0) {
+			System.exit(2);
+		}
+	}
+
+	// Open all games of this thread at once, then play them shot by shot in turn, so that
+	// they are all in progress together. Returns the shots fired and the mismatches.
+	private static long[] play(InetSocketAddress address, int games, int size, Random rand, Histogram latency)
+			throws IOException {
+		GameClient[][] clients = new GameClient[games][2];
+		GameEngine[] engines = new GameEngine[games];
+		ShootingStrategy[] strategies = new ShootingStrategy[games];
+		long shots = 0;
+		long mismatches = 0;
+		try {
+			for (int g = 0; g < games; g++) {
+				Board board = new Board(size, size, rand);
+				int bonus = rand.nextBoolean() ? 5 : 0;
+				engines[g] = new GameEngine(new Board(board.getLayout()), bonus);
+				strategies[g] = new ProbabilityShooter();
+				strategies[g].reset(size, size, rand);
+
+				clients[g][0] = new GameClient(address);
+				clients[g][1] = new GameClient(address);
+				clients[g][0].newGame(board.getLayout(), bonus);
+				clients[g][0].expect(Protocol.GAME);
+				clients[g][1].join(clients[g][0].getGameId());
+				clients[g][1].expect(Protocol.GAME);
+				clients[g][0].expect(Protocol.STARTED);
+			}
+
+			int playing = games;
+			while (playing > 0) {
+				for (int g = 0; g < games; g++) {
+					GameEngine engine = engines[g];
+					if (engine.isGameOver()) {
+						continue;
+					}
+					int cell = strategies[g].nextShot();
+					int coordX = cell % size;
+					int coordY = cell / size;
+					GameClient shooter = clients[g][engine.getCurrentPlayer() - 1];
+					GameClient other = clients[g][2 - engine.getCurrentPlayer()];
+
+					long fired = System.nanoTime();
+					shooter.fire(coordX, coordY);
+					shooter.expect(Protocol.SHOT);
+					latency.add((int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - fired) / 1000));
+					other.expect(Protocol.SHOT);
+					shots++;
+
+					int result = shooter.getResult();
+					if (result != engine.fire(coordX, coordY) || other.getResult() != result
+							|| shooter.getScore(1) != engine.getScoreBoard().getScore(1)
+							|| shooter.getScore(2) != engine.getScoreBoard().getScore(2)
+							|| shooter.getShipsLeft() != engine.getNumberOfShipsLeft()) {
+						mismatches++;
+					}
+					strategies[g].observe(coordX, coordY, result);
+					if (ShotResult.isGameOver(result)) {
+						playing--;
+					}
+				}
+			}
+		} finally {
+			for (GameClient[] pair : clients) {
+				for (GameClient client : pair) {
+					if (client != null) {
+						client.close();
+					}
+				}
+			}
+		}
+		return new long[] {shots, mismatches};
+	}
+}
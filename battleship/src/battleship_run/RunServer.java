@@ -0,0 +1,31 @@
+/*
+ * Name: RunServer.java
+ * Description: Host games over TCP from the command line, printing the load every 10 seconds.
+ * Usage: RunServer [port]   (7070 by default)
+ */
+
+package battleship_run;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import battleship_net.GameServer;
+
+public class RunServer {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+
+		GameServer server = new GameServer(new InetSocketAddress(port));
+		server.start();
+		System.out.println("Serving games on port " + server.getPort());
+
+		long lastShots = 0;
+		while (true) {
+			Thread.sleep(10_000);
+			long shots = server.getShots();
+			System.out.printf("%d connections, %d games, %.0f shots/s%n", server.getConnections(), server.getMatches(),
+					(shots - lastShots) / 10.0);
+			lastShots = shots;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Name: RunSimulation.java
+ * Description: Simulate games from the command line and print the statistics.
+ * Usage: RunSimulation <sizeX> <sizeY> <games> [seed] [random|probability|probability-cached]
+ *        RunSimulation corpus <file> <games> [seed] [random|probability|probability-cached]
+ * The second form replays the layouts of a corpus file instead of random boards.
+ * probability-cached plays as probability, with one TranspositionTable shared by all workers.
+ */
+
+package battleship_run;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import battleship_ai.ProbabilityShooter;
+import battleship_ai.RandomShooter;
+import battleship_ai.ShootingStrategy;
+import battleship_ai.TranspositionTable;
+import battleship_data.LayoutCorpus;
+import battleship_sim.Simulation;
+import battleship_sim.SimulationResult;
+
+public class RunSimulation {
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: RunSimulation <sizeX> <sizeY> <games> [seed] [random|probability|probability-cached]");
+			System.err.println("       RunSimulation corpus <file> <games> [seed] [random|probability|probability-cached]");
+			System.exit(1);
+		}
+
+		long games = Long.parseLong(args[2]);
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+		String strategy = args.length > 4 ? args[4] : "random";
+
+		Supplier<ShootingStrategy> strategies;
+		TranspositionTable table = null;
+		switch (strategy) {
+		case "random": {
+			strategies = RandomShooter::new;
+			break;
+		}
+		case "probability": {
+			strategies = ProbabilityShooter::new;
+			break;
+		}
+		case "probability-cached": {
+			TranspositionTable shared = new TranspositionTable();
+			strategies = () -> new ProbabilityShooter(shared);
+			table = shared;
+			break;
+		}
+		default: {
+			throw new IllegalArgumentException("Unknown strategy: " + strategy);
+		}
+		}
+
+		Simulation simulation;
+		if (args[0].equals("corpus")) {
+			simulation = new Simulation(LayoutCorpus.open(Paths.get(args[1])), seed, strategies);
+		} else {
+			simulation = new Simulation(Integer.parseInt(args[0]), Integer.parseInt(args[1]), seed, strategies);
+		}
+
+		long start = System.nanoTime();
+		SimulationResult result = simulation.run(games);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.print(result);
+		System.out.printf("Seed %d, %.2f s, %.0f games/s%n", seed, seconds, games / seconds);
+		if (table != null) {
+			System.out.printf("Transposition table: %d lookups, hit rate %.2f%%%n", table.getProbes(),
+					100 * table.getHitRate());
+		}
+	}
+}
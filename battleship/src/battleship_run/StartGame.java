@@ -1,16 +1,18 @@
 /*
  * Name: StartGame.java
- * Description: Generate the intro window in the EDT.
+ * Description: Generate the intro window in the EDT, watched for stalls by EdtWatchdog.
  */
 
 package battleship_run;
 
 import javax.swing.SwingUtilities;
 
+import battleship_GUI.EdtWatchdog;
 import battleship_GUI.IntroWindow;
 
 public class StartGame {
 	public static void main(String[] args) {
+		EdtWatchdog.install();
 		SwingUtilities.invokeLater(new Runnable() {
 			public void run() {
 				new IntroWindow();
@@ -0,0 +1,115 @@
+/*
+ * Name: DifficultyAnalyzer.java
+ * Description: Measure how hard a layout is to clear, before it goes into rotation.
+ * Two measures are taken. The first is exact: FleetCounter counts every configuration of
+ * the fleet of the layout on its board and how often each coordinate is covered, which is
+ * where a shooter knowing nothing else looks first. A layout whose ships sit on the likely
+ * coordinates is found early. The second is the number of shots a strategy needs to clear
+ * the layout, estimated by playing it many times with different seeds, spread over all cores
+ * as in Simulation.
+ */
+
+package battleship_sim;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import battleship_ai.ShootingStrategy;
+import battleship_data.Board;
+import battleship_data.GameEngine;
+import battleship_data.Layout;
+import battleship_data.SplitMix;
+
+public class DifficultyAnalyzer {
+
+	static final int GAMES_PER_TASK = 256; // Games a task plays itself instead of splitting further
+
+	private final Layout LAYOUT;
+	private final long SEED;
+	private final Supplier<? extends ShootingStrategy> STRATEGIES; // Makes one strategy per task
+
+	public DifficultyAnalyzer(Layout layout, long seed, Supplier<? extends ShootingStrategy> strategies) {
+		this.LAYOUT = layout;
+		this.SEED = seed;
+		this.STRATEGIES = strategies;
+	}
+
+	// Count the configurations and play the given number of games, on all available cores
+	public DifficultyReport analyze(long games) {
+		return analyze(games, Runtime.getRuntime().availableProcessors());
+	}
+
+	// The configurations are only counted on boards of up to FleetCounter.MAX_CELLS coordinates
+	public DifficultyReport analyze(long games, int parallelism) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			long configurations = -1;
+			long[] occupancy = null;
+			if (FleetCounter.fits(LAYOUT)) {
+				occupancy = new long[LAYOUT.getBoardSizeX() * LAYOUT.getBoardSizeY()];
+				configurations = new FleetCounter(LAYOUT).count(occupancy, pool);
+			}
+			Histogram shots = games > 0 ? pool.invoke(new GamesTask(0, games)) : new Histogram();
+			return new DifficultyReport(LAYOUT, configurations, occupancy, shots);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// Play games number from (inclusive) to to (exclusive) on the layout into the histogram
+	void playGames(long from, long to, Histogram shotsToFinish) {
+
+		ShootingStrategy strategy = STRATEGIES.get();
+		Random rand = new Random();
+
+		for (long game = from; game < to; game++) {
+			rand.setSeed(SplitMix.mix(SEED + game));
+			Board board = new Board(LAYOUT);
+			int sizeX = board.getBoardSizeX();
+			GameEngine engine = new GameEngine(board, 0);
+			strategy.reset(sizeX, board.getBoardSizeY(), rand);
+
+			int shots = 0;
+			while (!engine.isGameOver()) {
+				int cell = strategy.nextShot();
+				int coordX = cell % sizeX;
+				int coordY = cell / sizeX;
+				strategy.observe(coordX, coordY, engine.fire(coordX, coordY));
+				shots++;
+			}
+			shotsToFinish.add(shots);
+		}
+	}
+
+	// Play a range of games, splitting it in halves while it is large
+	private class GamesTask extends RecursiveTask<Histogram> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long FROM;
+		private final long TO;
+
+		GamesTask(long from, long to) {
+			this.FROM = from;
+			this.TO = to;
+		}
+
+		@Override
+		protected Histogram compute() {
+			if (TO - FROM <= GAMES_PER_TASK) {
+				Histogram shots = new Histogram();
+				playGames(FROM, TO, shots);
+				return shots;
+			}
+			long middle = (FROM + TO) >>> 1;
+			GamesTask left = new GamesTask(FROM, middle);
+			left.fork();
+			Histogram right = new GamesTask(middle, TO).compute();
+			Histogram shots = left.join();
+			shots.merge(right);
+			return shots;
+		}
+	}
+}
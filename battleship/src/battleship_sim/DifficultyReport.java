@@ -0,0 +1,96 @@
+/*
+ * Name: DifficultyReport.java
+ * Description: How hard a layout is to clear, as measured by DifficultyAnalyzer: the number of
+ * fleet configurations on its board, how likely each coordinate is to hold a ship, how
+ * exposed the ships of the layout are, and the shots a strategy took to clear it.
+ */
+
+package battleship_sim;
+
+import battleship_data.Layout;
+
+public class DifficultyReport {
+
+	private final Layout LAYOUT;
+	private final long CONFIGURATIONS; // -1 if the board is too large to count
+	private final long[] OCCUPANCY; // Configurations covering each coordinate, y * sizeX + x; null if not counted
+	private final Histogram SHOTS_TO_FINISH;
+
+	DifficultyReport(Layout layout, long configurations, long[] occupancy, Histogram shotsToFinish) {
+		this.LAYOUT = layout;
+		this.CONFIGURATIONS = configurations;
+		this.OCCUPANCY = occupancy;
+		this.SHOTS_TO_FINISH = shotsToFinish;
+	}
+
+	public Layout getLayout() {
+		return LAYOUT;
+	}
+
+	public boolean isCounted() {
+		return CONFIGURATIONS >= 0;
+	}
+
+	// Ways to place the fleet of the layout on its board; -1 if the board was too large to count
+	public long getConfigurations() {
+		return CONFIGURATIONS;
+	}
+
+	// Fraction of the configurations with a ship at the coordinate
+	public double getOccupancy(int coordX, int coordY) {
+		if (!isCounted()) {
+			throw new IllegalStateException("The configurations of the layout were not counted.");
+		}
+		return (double) OCCUPANCY[coordY * LAYOUT.getBoardSizeX() + coordX] / CONFIGURATIONS;
+	}
+
+	// How much likelier the coordinates of the ships of the layout are to hold a ship than the
+	// average coordinate: above 1 they are found early, below 1 they hide where shooters look
+	// last. NaN if the configurations were not counted.
+	public double getExposure() {
+		if (!isCounted() || CONFIGURATIONS == 0) {
+			return Double.NaN;
+		}
+		double shipCells = 0;
+		double shipOccupancy = 0;
+		int sizeX = LAYOUT.getBoardSizeX();
+		for (int n = 1; n <= LAYOUT.getNumberOfShips(); n++) {
+			int length = LAYOUT.getShipType(n).getLength();
+			int step = LAYOUT.isVertical(n) ? sizeX : 1;
+			for (int i = 0, cell = LAYOUT.getOriginY(n) * sizeX + LAYOUT.getOriginX(n); i < length; i++, cell += step) {
+				shipOccupancy += (double) OCCUPANCY[cell] / CONFIGURATIONS;
+				shipCells++;
+			}
+		}
+		// Every configuration covers as many coordinates as the layout, so the average
+		// coordinate is covered by that fraction of them
+		double average = shipCells / OCCUPANCY.length;
+		return shipOccupancy / shipCells / average;
+	}
+
+	public Histogram getShotsToFinish() {
+		return SHOTS_TO_FINISH;
+	}
+
+	// Mean shots the strategy needed to clear the layout
+	public double getExpectedShots() {
+		return SHOTS_TO_FINISH.getMean();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Board: ").append(LAYOUT.getBoardSizeX()).append('x').append(LAYOUT.getBoardSizeY())
+				.append(", ships: ").append(LAYOUT.getNumberOfShips()).append(System.lineSeparator());
+		if (isCounted()) {
+			sb.append(String.format("Fleet configurations: %d (%.1f bits), exposure of the layout %.3f%n",
+					CONFIGURATIONS, Math.log(CONFIGURATIONS) / Math.log(2), getExposure()));
+		} else {
+			sb.append("Fleet configurations: not counted, the board is too large").append(System.lineSeparator());
+		}
+		sb.append(String.format("Shots to finish: games %d, mean %.2f, median %d, 90%% %d, max %d%n",
+				SHOTS_TO_FINISH.getTotal(), SHOTS_TO_FINISH.getMean(), SHOTS_TO_FINISH.getPercentile(0.5),
+				SHOTS_TO_FINISH.getPercentile(0.9), SHOTS_TO_FINISH.getMax()));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,328 @@
+/*
+ * Name: FleetCounter.java
+ * Description: Count every way the fleet of a layout can be placed on its board, and how many
+ * of those ways cover each coordinate.
+ * Placements are bitboards of two longs, so boards of up to 128 coordinates can be counted.
+ * The ships are taken longest first with ships of one type next to each other, and a ship
+ * only takes placements after those of the previous ship of its type, so every fleet
+ * configuration is counted once however its equal ships are numbered.
+ *
+ * All ships but the last two are enumerated, dropping any placement that overlaps the ships
+ * before it. The last two are not: for each of their placements the counter keeps, once per
+ * board, the set of their placements it overlaps. While enumerating, it carries the
+ * placements of the last two ships the front ships rule out, and then counts the pairs that
+ * remain with a few popcounts per placement instead of another two levels of enumeration.
+ * The placements of the first ship are split over a ForkJoinPool.
+ */
+
+package battleship_sim;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import battleship_data.Layout;
+import battleship_data.ShipType;
+
+final class FleetCounter {
+
+	static final int MAX_CELLS = 128; // Coordinates of a bitboard
+
+	private static final ShipType[] TYPES = ShipType.values();
+
+	private final int BOARD_SIZE_X;
+	private final int CELLS;
+	private final int[] FLEET; // Type ordinals, longest first
+	private final int FRONT; // Ships enumerated; the ones after are counted
+	private final int LAST1; // Type ordinal of the second last ship, -1 if none
+	private final int LAST2; // Type ordinal of the last ship, -1 if none
+
+	// Per type ordinal: every placement as a bitboard, its first coordinate and its step
+	private final long[][] LOW = new long[TYPES.length][];
+	private final long[][] HIGH = new long[TYPES.length][];
+	private final int[][] FIRST = new int[TYPES.length][];
+	private final int[][] STEP = new int[TYPES.length][];
+
+	// [type][placement]: placements of LAST1 and of LAST2 the placement overlaps, as bitsets
+	private final long[][][] OVERLAPS1 = new long[TYPES.length][][];
+	private final long[][][] OVERLAPS2 = new long[TYPES.length][][];
+
+	FleetCounter(Layout layout) {
+		if (!fits(layout)) {
+			throw new IllegalArgumentException("Boards of more than " + MAX_CELLS + " coordinates cannot be counted.");
+		}
+		BOARD_SIZE_X = layout.getBoardSizeX();
+		CELLS = BOARD_SIZE_X * layout.getBoardSizeY();
+
+		int ships = layout.getNumberOfShips();
+		FLEET = new int[ships];
+		for (int n = 1; n <= ships; n++) {
+			FLEET[n - 1] = layout.getShipType(n).ordinal();
+		}
+		Arrays.sort(FLEET); // Type ordinals go from the longest ship to the shortest
+		FRONT = Math.max(0, ships - 2);
+		LAST1 = ships > 0 ? FLEET[FRONT] : -1;
+		LAST2 = ships > 1 ? FLEET[FRONT + 1] : -1;
+
+		for (int t : FLEET) {
+			if (LOW[t] == null) {
+				addPlacements(t, layout.getBoardSizeY());
+			}
+		}
+		for (int t : FLEET) {
+			if (OVERLAPS1[t] == null) {
+				OVERLAPS1[t] = overlaps(t, LAST1);
+				OVERLAPS2[t] = LAST2 < 0 ? null : overlaps(t, LAST2);
+			}
+		}
+	}
+
+	// Whether the board of the layout is small enough to count
+	static boolean fits(Layout layout) {
+		return (long) layout.getBoardSizeX() * layout.getBoardSizeY() <= MAX_CELLS;
+	}
+
+	// The number of fleet configurations. Adds to occupancy[y * sizeX + x] the number of them
+	// covering the coordinate.
+	long count(long[] occupancy, ForkJoinPool pool) {
+		Counts counts = FRONT == 0 ? new Counter().countAll() : pool.invoke(new CountTask(0, LOW[FLEET[0]].length));
+		for (int cell = 0; cell < CELLS; cell++) {
+			occupancy[cell] += counts.OCCUPANCY[cell];
+		}
+		return counts.configurations;
+	}
+
+	private void addPlacements(int t, int sizeY) {
+		int length = TYPES[t].getLength();
+		int horizontal = BOARD_SIZE_X < length ? 0 : (BOARD_SIZE_X - length + 1) * sizeY;
+		int vertical = sizeY < length ? 0 : BOARD_SIZE_X * (sizeY - length + 1);
+		LOW[t] = new long[horizontal + vertical];
+		HIGH[t] = new long[horizontal + vertical];
+		FIRST[t] = new int[horizontal + vertical];
+		STEP[t] = new int[horizontal + vertical];
+		int p = 0;
+		for (int v = 0; v < 2; v++) {
+			int step = v == 0 ? 1 : BOARD_SIZE_X;
+			int maxX = v == 0 ? BOARD_SIZE_X - length + 1 : BOARD_SIZE_X;
+			int maxY = v == 0 ? sizeY : sizeY - length + 1;
+			for (int coordY = 0; coordY < maxY; coordY++) {
+				for (int coordX = 0; coordX < maxX; coordX++, p++) {
+					FIRST[t][p] = coordY * BOARD_SIZE_X + coordX;
+					STEP[t][p] = step;
+					for (int i = 0, cell = FIRST[t][p]; i < length; i++, cell += step) {
+						if (cell < 64) {
+							LOW[t][p] |= 1L << cell;
+						} else {
+							HIGH[t][p] |= 1L << (cell - 64);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	// For every placement of type t, the set of placements of type u it overlaps
+	private long[][] overlaps(int t, int u) {
+		int placements = LOW[u].length;
+		long[][] sets = new long[LOW[t].length][words(placements)];
+		for (int p = 0; p < LOW[t].length; p++) {
+			for (int q = 0; q < placements; q++) {
+				if (((LOW[t][p] & LOW[u][q]) | (HIGH[t][p] & HIGH[u][q])) != 0) {
+					sets[p][q >>> 6] |= 1L << q;
+				}
+			}
+		}
+		return sets;
+	}
+
+	private static int words(int bits) {
+		return (bits + 63) >>> 6;
+	}
+
+	// Configurations and occupancy counted by one task
+	static final class Counts {
+
+		private long configurations;
+		private final long[] OCCUPANCY;
+
+		Counts(int cells) {
+			this.OCCUPANCY = new long[cells];
+		}
+
+		Counts merge(Counts other) {
+			configurations += other.configurations;
+			for (int cell = 0; cell < OCCUPANCY.length; cell++) {
+				OCCUPANCY[cell] += other.OCCUPANCY[cell];
+			}
+			return this;
+		}
+	}
+
+	// Count the configurations with the first ship at placements from (inclusive) to to
+	// (exclusive), splitting the range in halves
+	private class CountTask extends RecursiveTask<Counts> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int FROM;
+		private final int TO;
+
+		CountTask(int from, int to) {
+			this.FROM = from;
+			this.TO = to;
+		}
+
+		@Override
+		protected Counts compute() {
+			if (TO - FROM <= 1) {
+				return new Counter().countFirst(FROM, TO);
+			}
+			int middle = (FROM + TO) >>> 1;
+			CountTask left = new CountTask(FROM, middle);
+			left.fork();
+			Counts right = new CountTask(middle, TO).compute();
+			return left.join().merge(right);
+		}
+	}
+
+	// The enumeration of one task, with its own scratch space
+	private class Counter {
+
+		private final Counts COUNTS = new Counts(CELLS);
+		private final long[][] BLOCKED1 = new long[FRONT + 1][]; // [level]: placements of LAST1 ruled out
+		private final long[][] BLOCKED2 = new long[FRONT + 1][];
+		private final long[] ALLOWED1;
+		private final long[] ALLOWED2;
+
+		Counter() {
+			int words1 = LAST1 < 0 ? 0 : words(LOW[LAST1].length);
+			int words2 = LAST2 < 0 ? 0 : words(LOW[LAST2].length);
+			for (int level = 0; level <= FRONT; level++) {
+				BLOCKED1[level] = new long[words1];
+				BLOCKED2[level] = new long[words2];
+			}
+			ALLOWED1 = new long[words1];
+			ALLOWED2 = new long[words2];
+		}
+
+		Counts countAll() {
+			COUNTS.configurations = FLEET.length == 0 ? 1 : countLast(0);
+			return COUNTS;
+		}
+
+		Counts countFirst(int from, int to) {
+			COUNTS.configurations = countFront(0, from, to, 0, 0);
+			return COUNTS;
+		}
+
+		// Configurations of the ships from the level on, the ship of the level at placements
+		// from to to, the coordinates in low and high being taken
+		private long countFront(int level, int from, int to, long low, long high) {
+			if (level == FRONT) {
+				return countLast(from);
+			}
+			int t = FLEET[level];
+			boolean sameNext = FLEET[level + 1] == t;
+			long[] lows = LOW[t];
+			long[] highs = HIGH[t];
+			long configurations = 0;
+			for (int p = from; p < to; p++) {
+				if (((lows[p] & low) | (highs[p] & high)) != 0) {
+					continue;
+				}
+				or(BLOCKED1[level], OVERLAPS1[t][p], BLOCKED1[level + 1]);
+				if (LAST2 >= 0) {
+					or(BLOCKED2[level], OVERLAPS2[t][p], BLOCKED2[level + 1]);
+				}
+				long ways = countFront(level + 1, sameNext ? p + 1 : 0, LOW[FLEET[level + 1]].length, low | lows[p],
+						high | highs[p]);
+				if (ways != 0) {
+					configurations += ways;
+					addOccupancy(t, p, ways);
+				}
+			}
+			return configurations;
+		}
+
+		// Configurations of the last one or two ships, the second last at placements from on
+		private long countLast(int from) {
+			int count1 = allowed(LOW[LAST1].length, from, BLOCKED1[FRONT], ALLOWED1);
+			if (LAST2 < 0) {
+				forEach(ALLOWED1, LAST1, null, 0, null, true);
+				return count1;
+			}
+			if (LAST2 == LAST1) {
+				// Ordered pairs of placements apart, halved, as the ships are the same. Each
+				// placement is in as many pairs as it has placements apart, so its occupancy is right.
+				return forEach(ALLOWED1, LAST1, OVERLAPS1[LAST1], count1, ALLOWED1, true) / 2;
+			}
+			int count2 = allowed(LOW[LAST2].length, 0, BLOCKED2[FRONT], ALLOWED2);
+			long pairs = forEach(ALLOWED1, LAST1, OVERLAPS2[LAST1], count2, ALLOWED2, true);
+			forEach(ALLOWED2, LAST2, OVERLAPS1[LAST2], count1, ALLOWED1, false);
+			return pairs;
+		}
+
+		// Fill allowed with the placements from on that are not blocked, and return their number
+		private int allowed(int placements, int from, long[] blocked, long[] allowed) {
+			int count = 0;
+			for (int w = 0; w < allowed.length; w++) {
+				long bits = ~blocked[w];
+				int base = w << 6;
+				if (placements - base < 64) {
+					bits &= (1L << (placements - base)) - 1;
+				}
+				if (from > base) {
+					bits &= from - base >= 64 ? 0 : -1L << (from - base);
+				}
+				allowed[w] = bits;
+				count += Long.bitCount(bits);
+			}
+			return count;
+		}
+
+		// For every allowed placement of type t, the placements of the other ship apart from it:
+		// the others allowed, minus those it overlaps. Adds them to the occupancy of its
+		// coordinates and returns their sum. Without another ship, each placement counts once.
+		private long forEach(long[] allowed, int t, long[][] overlaps, int others, long[] othersAllowed, boolean sum) {
+			long total = 0;
+			for (int w = 0; w < allowed.length; w++) {
+				long bits = allowed[w];
+				while (bits != 0) {
+					int p = (w << 6) + Long.numberOfTrailingZeros(bits);
+					bits &= bits - 1;
+					long apart = 1;
+					if (overlaps != null) {
+						long[] overlap = overlaps[p];
+						int overlapping = 0;
+						for (int v = 0; v < overlap.length; v++) {
+							overlapping += Long.bitCount(overlap[v] & othersAllowed[v]);
+						}
+						apart = others - overlapping;
+					}
+					if (apart != 0) {
+						addOccupancy(t, p, apart);
+						if (sum) {
+							total += apart;
+						}
+					}
+				}
+			}
+			return total;
+		}
+
+		private void addOccupancy(int t, int p, long ways) {
+			long[] occupancy = COUNTS.OCCUPANCY;
+			int step = STEP[t][p];
+			int length = TYPES[t].getLength();
+			for (int i = 0, cell = FIRST[t][p]; i < length; i++, cell += step) {
+				occupancy[cell] += ways;
+			}
+		}
+	}
+
+	private static void or(long[] a, long[] b, long[] into) {
+		for (int w = 0; w < into.length; w++) {
+			into[w] = a[w] | b[w];
+		}
+	}
+}
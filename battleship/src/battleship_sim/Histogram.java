@@ -0,0 +1,83 @@
+/*
+ * Name: Histogram.java
+ * Description: Count how often each non-negative integer value occurs.
+ * Each worker of a simulation fills its own histogram and the results are merged at the end,
+ * so it needs no synchronization.
+ */
+
+package battleship_sim;
+
+public class Histogram {
+
+	private long[] counts; // counts[v] is the number of times value v was added
+	private long total; // Number of values added
+	private long sum; // Sum of values added
+
+	public Histogram() {
+		counts = new long[16];
+	}
+
+	public void add(int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Histogram values must not be negative: " + value);
+		}
+		if (value >= counts.length) {
+			grow(value + 1);
+		}
+		counts[value]++;
+		total++;
+		sum += value;
+	}
+
+	// Add all counts of another histogram to this one
+	public void merge(Histogram other) {
+		if (other.counts.length > counts.length) {
+			grow(other.counts.length);
+		}
+		for (int i = 0; i < other.counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		sum += other.sum;
+	}
+
+	private void grow(int minLength) {
+		long[] bigger = new long[Math.max(minLength, counts.length * 2)];
+		System.arraycopy(counts, 0, bigger, 0, counts.length);
+		counts = bigger;
+	}
+
+	public long getCount(int value) {
+		return value < counts.length ? counts[value] : 0;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public double getMean() {
+		return total == 0 ? 0 : (double) sum / total;
+	}
+
+	// The smallest value that at least the given fraction (0 to 1) of all values are equal to or below
+	public int getPercentile(double fraction) {
+		long needed = (long) Math.ceil(fraction * total);
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= needed && seen > 0) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	public int getMax() {
+		for (int i = counts.length - 1; i >= 0; i--) {
+			if (counts[i] != 0) {
+				return i;
+			}
+		}
+		return 0;
+	}
+}
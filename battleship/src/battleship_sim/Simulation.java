@@ -0,0 +1,141 @@
+/*
+ * Name: Simulation.java
+ * Description: Play a number of complete games on random boards, or replay the layouts of a
+ * corpus, spread over all cores.
+ * The games are split into ranges on a ForkJoinPool. Every range has its own strategy and
+ * its own result, which are merged when the ranges join, so the workers share nothing while
+ * playing. Each game is seeded from the simulation seed and its number, which makes the
+ * result independent of how the games were split.
+ *
+ * Every layout is played twice with the same shots: once without and once with the player 2
+ * bonus, so the win rates of both scoring systems are compared on the same games.
+ */
+
+package battleship_sim;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import battleship_ai.ShootingStrategy;
+import battleship_data.Board;
+import battleship_data.GameEngine;
+import battleship_data.LayoutCorpus;
+import battleship_data.ShipType;
+import battleship_data.ShotResult;
+import battleship_data.SplitMix;
+
+public class Simulation {
+
+	static final int GAMES_PER_TASK = 1024; // Games a task plays itself instead of splitting further
+
+	private final int BOARD_SIZE_X;
+	private final int BOARD_SIZE_Y;
+	private final LayoutCorpus CORPUS; // Layouts to replay, null for random boards
+	private final long SEED;
+	private final Supplier<? extends ShootingStrategy> STRATEGIES; // Makes one strategy per task
+
+	public Simulation(int sizeX, int sizeY, long seed, Supplier<? extends ShootingStrategy> strategies) {
+		this.BOARD_SIZE_X = sizeX;
+		this.BOARD_SIZE_Y = sizeY;
+		this.CORPUS = null;
+		this.SEED = seed;
+		this.STRATEGIES = strategies;
+	}
+
+	// Replay the layouts of a corpus: game number n is played on layout n modulo the corpus size,
+	// so every run over the same corpus plays the same boards. The seed drives the shots only.
+	public Simulation(LayoutCorpus corpus, long seed, Supplier<? extends ShootingStrategy> strategies) {
+		if (corpus.size() == 0) {
+			throw new IllegalArgumentException("The corpus has no layouts.");
+		}
+		this.BOARD_SIZE_X = 0;
+		this.BOARD_SIZE_Y = 0;
+		this.CORPUS = corpus;
+		this.SEED = seed;
+		this.STRATEGIES = strategies;
+	}
+
+	// Play the given number of games on all available cores
+	public SimulationResult run(long games) {
+		return run(games, Runtime.getRuntime().availableProcessors());
+	}
+
+	// Play the given number of games with the given number of worker threads
+	public SimulationResult run(long games, int parallelism) {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			return pool.invoke(new GamesTask(0, games));
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// Play games number from (inclusive) to to (exclusive) into the given result
+	void playGames(long from, long to, SimulationResult result) {
+
+		ShootingStrategy strategy = STRATEGIES.get();
+		Random rand = new Random();
+		int[] scorePerType = new int[ShipType.values().length];
+		int[] winnerPerBonus = new int[SimulationResult.PLAYER_BONUSES.length];
+
+		for (long game = from; game < to; game++) {
+			long gameSeed = SplitMix.mix(SEED + game);
+			int shots = 0;
+			Arrays.fill(scorePerType, 0);
+			for (int i = 0; i < SimulationResult.PLAYER_BONUSES.length; i++) {
+				rand.setSeed(gameSeed);
+				Board board = CORPUS == null ? new Board(BOARD_SIZE_X, BOARD_SIZE_Y, rand)
+						: new Board(CORPUS, game % CORPUS.size());
+				int sizeX = board.getBoardSizeX();
+				GameEngine engine = new GameEngine(board, SimulationResult.PLAYER_BONUSES[i]);
+				strategy.reset(sizeX, board.getBoardSizeY(), rand);
+
+				shots = 0;
+				while (!engine.isGameOver()) {
+					int cell = strategy.nextShot();
+					int coordX = cell % sizeX;
+					int coordY = cell / sizeX;
+					int shot = engine.fire(coordX, coordY);
+					strategy.observe(coordX, coordY, shot);
+					shots++;
+					if (i == 0 && ShotResult.isHit(shot)) {
+						scorePerType[ShotResult.shipType(shot).ordinal()] += ShotResult.score(shot);
+					}
+				}
+				winnerPerBonus[i] = engine.getScoreBoard().getWinner();
+			}
+			result.addGame(shots, scorePerType, winnerPerBonus);
+		}
+	}
+
+	// Play a range of games, splitting it in halves while it is large
+	private class GamesTask extends RecursiveTask<SimulationResult> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long FROM;
+		private final long TO;
+
+		GamesTask(long from, long to) {
+			this.FROM = from;
+			this.TO = to;
+		}
+
+		@Override
+		protected SimulationResult compute() {
+			if (TO - FROM <= GAMES_PER_TASK) {
+				SimulationResult result = new SimulationResult();
+				playGames(FROM, TO, result);
+				return result;
+			}
+			long middle = (FROM + TO) >>> 1;
+			GamesTask left = new GamesTask(FROM, middle);
+			left.fork();
+			SimulationResult right = new GamesTask(middle, TO).compute();
+			return left.join().merge(right);
+		}
+	}
+}
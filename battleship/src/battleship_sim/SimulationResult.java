@@ -0,0 +1,96 @@
+/*
+ * Name: SimulationResult.java
+ * Description: Statistics of a number of simulated games: shots needed to finish a game,
+ * points scored per ship type in a game, and how often each player wins with and without
+ * the player 2 bonus. Results of different workers are merged into one.
+ */
+
+package battleship_sim;
+
+import battleship_data.ShipType;
+
+public class SimulationResult {
+
+	public static final int[] PLAYER_BONUSES = {0, 5}; // The two scoring systems of the rules
+
+	private static final ShipType[] INT_TO_SHIP = ShipType.values();
+
+	private final Histogram SHOTS_TO_FINISH = new Histogram();
+	private final Histogram[] SCORE_PER_TYPE = new Histogram[INT_TO_SHIP.length]; // Points per game, without bonus
+	private final long[][] WINS = new long[PLAYER_BONUSES.length][3]; // [bonus][0: tie, 1: player 1, 2: player 2]
+	private long games;
+
+	public SimulationResult() {
+		for (int i = 0; i < SCORE_PER_TYPE.length; i++) {
+			SCORE_PER_TYPE[i] = new Histogram();
+		}
+	}
+
+	// Record one game: shots it took, points scored on each ship type and the winner per bonus
+	void addGame(int shots, int[] scorePerType, int[] winnerPerBonus) {
+		games++;
+		SHOTS_TO_FINISH.add(shots);
+		for (int i = 0; i < SCORE_PER_TYPE.length; i++) {
+			SCORE_PER_TYPE[i].add(scorePerType[i]);
+		}
+		for (int i = 0; i < WINS.length; i++) {
+			WINS[i][winnerPerBonus[i]]++;
+		}
+	}
+
+	// Add all statistics of another result to this one
+	public SimulationResult merge(SimulationResult other) {
+		games += other.games;
+		SHOTS_TO_FINISH.merge(other.SHOTS_TO_FINISH);
+		for (int i = 0; i < SCORE_PER_TYPE.length; i++) {
+			SCORE_PER_TYPE[i].merge(other.SCORE_PER_TYPE[i]);
+		}
+		for (int i = 0; i < WINS.length; i++) {
+			for (int j = 0; j < 3; j++) {
+				WINS[i][j] += other.WINS[i][j];
+			}
+		}
+		return this;
+	}
+
+	public long getGames() {
+		return games;
+	}
+
+	public Histogram getShotsToFinish() {
+		return SHOTS_TO_FINISH;
+	}
+
+	public Histogram getScores(ShipType type) {
+		return SCORE_PER_TYPE[type.ordinal()];
+	}
+
+	// Fraction of games won by the player (1 or 2), or tied if player is 0, for a player 2 bonus of 0 or 5
+	public double getWinRate(int playerBonus, int player) {
+		for (int i = 0; i < PLAYER_BONUSES.length; i++) {
+			if (PLAYER_BONUSES[i] == playerBonus) {
+				return games == 0 ? 0 : (double) WINS[i][player] / games;
+			}
+		}
+		throw new IllegalArgumentException("No games were simulated with a player bonus of " + playerBonus);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Games: ").append(games).append(System.lineSeparator());
+		sb.append(String.format("Shots to finish: mean %.2f, median %d, 90%% %d, max %d%n",
+				SHOTS_TO_FINISH.getMean(), SHOTS_TO_FINISH.getPercentile(0.5),
+				SHOTS_TO_FINISH.getPercentile(0.9), SHOTS_TO_FINISH.getMax()));
+		for (ShipType type : INT_TO_SHIP) {
+			Histogram h = getScores(type);
+			sb.append(String.format("%-10s points per game: mean %.2f, median %d, max %d%n",
+					type.name(), h.getMean(), h.getPercentile(0.5), h.getMax()));
+		}
+		for (int bonus : PLAYER_BONUSES) {
+			sb.append(String.format("Player 2 bonus %d: player 1 wins %.2f%%, player 2 wins %.2f%%, tied %.2f%%%n",
+					bonus, 100 * getWinRate(bonus, 1), 100 * getWinRate(bonus, 2), 100 * getWinRate(bonus, 0)));
+		}
+		return sb.toString();
+	}
+}
@@ -1,3 +1,4 @@
 module battleship {
 	requires java.desktop;
+	requires jdk.jfr;
 }
\ No newline at end of file
@@ -0,0 +1,117 @@
+/*
+ * Name: BoardBenchmark.java
+ * Description: Throughput of building boards, randomly, from layout files and from a
+ * layout corpus, at every board size the game allows (5 to 10), and of firing at and
+ * checking a board.
+ */
+
+package battleship_bench;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleship_data.Board;
+import battleship_data.LayoutCorpus;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+	static final int BOARDS = 1024; // Boards fired at in turn, so that a board is rarely finished
+
+	@Param({"5", "6", "7", "8", "9", "10"})
+	int size;
+
+	private Random rand;
+	private File layoutFile;
+	private LayoutCorpus corpus; // BOARDS random layouts
+	private Board[] boards;
+	private int nextShot; // Runs over every coordinate of every board
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		rand = new Random(42);
+		layoutFile = Layouts.writeRandom(size, 42);
+
+		Path corpusFile = Files.createTempFile("corpus-" + size + "-", ".bin");
+		corpusFile.toFile().deleteOnExit();
+		try (LayoutCorpus.Writer writer = LayoutCorpus.create(corpusFile)) {
+			for (int i = 0; i < BOARDS; i++) {
+				writer.add(new Board(size, size, rand));
+			}
+		}
+		corpus = LayoutCorpus.open(corpusFile);
+	}
+
+	// A fresh set of boards every iteration, so that hit() mostly lands on coordinates not shot yet
+	@Setup(Level.Iteration)
+	public void makeBoards() {
+		boards = new Board[BOARDS];
+		for (int i = 0; i < BOARDS; i++) {
+			boards[i] = new Board(size, size, rand);
+		}
+		nextShot = 0;
+	}
+
+	@Benchmark
+	public Board construct() {
+		return new Board(size, size, rand);
+	}
+
+	@Benchmark
+	public Board parseFile() throws FileNotFoundException {
+		return new Board(layoutFile);
+	}
+
+	@Benchmark
+	public Board loadFromCorpus() {
+		return new Board(corpus, nextShot++ % BOARDS);
+	}
+
+	@Benchmark
+	public Board hit() {
+		int cells = size * size;
+		int shot = nextShot++;
+		Board board = boards[(shot / cells) % BOARDS];
+		int cell = shot % cells;
+		board.hit(cell % size, cell / size);
+		return board;
+	}
+
+	// A whole shot in one call, as GameEngine takes it
+	@Benchmark
+	public int fire() {
+		int cells = size * size;
+		int shot = nextShot++;
+		Board board = boards[(shot / cells) % BOARDS];
+		int cell = shot % cells;
+		return board.fire(cell % size, cell / size);
+	}
+
+	@Benchmark
+	public boolean allHit() {
+		return boards[nextShot++ % BOARDS].allHit();
+	}
+}
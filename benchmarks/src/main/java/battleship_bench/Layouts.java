@@ -0,0 +1,69 @@
+/*
+ * Name: Layouts.java
+ * Description: Write random boards as layout files in the layout.txt format, so that
+ * the file parser can be benchmarked at every board size.
+ */
+
+package battleship_bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import battleship_data.Board;
+import battleship_data.Ship;
+
+class Layouts {
+
+	private Layouts() {
+	}
+
+	// Text of a square board in the layout.txt format: the size, then one line per ship
+	// with its type and 1-based "row*column" coordinates
+	static String toText(Board board) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(board.getBoardSizeX());
+		boolean[] written = new boolean[board.getNumberOfShips() + 1];
+		for (int coordY = 0; coordY < board.getBoardSizeY(); coordY++) {
+			for (int coordX = 0; coordX < board.getBoardSizeX(); coordX++) {
+				Ship ship = board.getShip(coordX, coordY);
+				if (ship == null || written[ship.getShipNumber()]) {
+					continue;
+				}
+				written[ship.getShipNumber()] = true;
+				String type = ship.getShipType().name();
+				sb.append(System.lineSeparator()).append(type.charAt(0)).append(type.substring(1).toLowerCase());
+				for (int i = 0; i < lengthOf(board, ship); i++) {
+					int x = ship.getOriginX() + (ship.isVertical() ? 0 : i);
+					int y = ship.getOriginY() + (ship.isVertical() ? i : 0);
+					sb.append(';').append(y + 1).append('*').append(x + 1);
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	// Count the coordinates of a ship by walking from its origin
+	private static int lengthOf(Board board, Ship ship) {
+		int length = 0;
+		int x = ship.getOriginX();
+		int y = ship.getOriginY();
+		while (x < board.getBoardSizeX() && y < board.getBoardSizeY() && board.getShip(x, y) == ship) {
+			length++;
+			if (ship.isVertical()) {
+				y++;
+			} else {
+				x++;
+			}
+		}
+		return length;
+	}
+
+	// Write a random square board of the given size to a temporary layout file
+	static File writeRandom(int size, long seed) throws IOException {
+		File file = File.createTempFile("layout-" + size + "-", ".txt");
+		file.deleteOnExit();
+		Files.writeString(file.toPath(), toText(new Board(size, size, seed)));
+		return file;
+	}
+}
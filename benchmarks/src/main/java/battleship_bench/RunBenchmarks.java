@@ -0,0 +1,27 @@
+/*
+ * Name: RunBenchmarks.java
+ * Description: Run the benchmarks with the GC profiler, so that every result reports the
+ * allocation rate next to the throughput. Arguments are regular expressions selecting
+ * benchmarks; without arguments all of them run.
+ */
+
+package battleship_bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class RunBenchmarks {
+	public static void main(String[] args) throws RunnerException {
+		ChainedOptionsBuilder options = new OptionsBuilder().addProfiler(GCProfiler.class);
+		if (args.length == 0) {
+			options.include("battleship_bench\\..*");
+		}
+		for (String pattern : args) {
+			options.include(pattern);
+		}
+		new Runner(options.build()).run();
+	}
+}
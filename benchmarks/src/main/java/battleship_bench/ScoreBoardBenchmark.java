@@ -0,0 +1,55 @@
+/*
+ * Name: ScoreBoardBenchmark.java
+ * Description: Throughput of updating the high score table at the end of a game.
+ * evaluateHighscore() appends to highscores.log and may republish highscores.txt in the
+ * working directory, so run the benchmarks from a scratch directory.
+ */
+
+package battleship_bench;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleship_data.ScoreBoard;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoreBoardBenchmark {
+
+	private ScoreBoard scoreBoard;
+	private int game;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		if (!new File("highscores.txt").exists()) {
+			ScoreBoard.resetHighscores();
+		}
+		scoreBoard = new ScoreBoard();
+	}
+
+	@Benchmark
+	public ScoreBoard evaluateHighscore() {
+		// Vary the scores so that the table keeps changing
+		game++;
+		scoreBoard.addScoreToPlayer(game % 7, 1);
+		scoreBoard.addScoreToPlayer(game % 5, 2);
+		scoreBoard.evaluateHighscore();
+		return scoreBoard;
+	}
+}
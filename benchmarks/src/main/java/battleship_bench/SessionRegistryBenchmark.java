@@ -0,0 +1,96 @@
+/*
+ * Name: SessionRegistryBenchmark.java
+ * Description: Throughput of looking up hosted games and firing in them from several threads
+ * at once, as a server handling many connections would. Every thread plays its own sessions,
+ * so threads only meet on the lock stripes and the map of the registry.
+ */
+
+package battleship_bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleship_data.Board;
+import battleship_net.Session;
+import battleship_net.SessionRegistry;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class SessionRegistryBenchmark {
+
+	static final int SESSIONS_PER_THREAD = 1024;
+
+	@State(Scope.Benchmark)
+	public static class Registry {
+
+		SessionRegistry registry;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			registry = new SessionRegistry(1, TimeUnit.HOURS, null);
+			registry.start();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			registry.close();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Player {
+
+		Random rand;
+		long[] ids;
+		int[] nextCell; // Next coordinate fired at in each session, row by row
+		int turn;
+
+		@Setup(Level.Trial)
+		public void setUp(Registry registry) {
+			rand = new Random(42);
+			ids = new long[SESSIONS_PER_THREAD];
+			nextCell = new int[SESSIONS_PER_THREAD];
+			for (int i = 0; i < SESSIONS_PER_THREAD; i++) {
+				ids[i] = registry.registry.create(new Board(10, 10, rand), 5).getId();
+			}
+		}
+	}
+
+	@Benchmark
+	public int lookup(Registry registry, Player player) {
+		Session session = registry.registry.get(player.ids[player.turn++ & (SESSIONS_PER_THREAD - 1)]);
+		return session.getScore(1);
+	}
+
+	@Benchmark
+	public int fire(Registry registry, Player player) {
+		int i = player.turn++ & (SESSIONS_PER_THREAD - 1);
+		Session session = registry.registry.get(player.ids[i]);
+		int cell = player.nextCell[i]++;
+		int result = session.fire(session.getCurrentPlayer(), cell % 10, cell / 10);
+		if (session.isGameOver()) {
+			// Replace the finished game, which the registry evicts at its next tick
+			player.ids[i] = registry.registry.create(new Board(10, 10, player.rand), 5).getId();
+			player.nextCell[i] = 0;
+		}
+		return result;
+	}
+}
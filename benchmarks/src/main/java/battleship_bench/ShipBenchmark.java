@@ -0,0 +1,43 @@
+/*
+ * Name: ShipBenchmark.java
+ * Description: Throughput of hitting a ship and checking whether it is sunk.
+ */
+
+package battleship_bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import battleship_data.Ship;
+import battleship_data.ShipType;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShipBenchmark {
+
+	private final Ship ship = new Ship(ShipType.CARRIER, 1);
+
+	@Benchmark
+	public int hitAndIsDown() {
+		ship.hit();
+		return ship.isDown();
+	}
+
+	@Benchmark
+	public int isDown() {
+		return ship.isDown();
+	}
+}